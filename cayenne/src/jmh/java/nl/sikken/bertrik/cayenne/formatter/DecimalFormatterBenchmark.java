@@ -0,0 +1,67 @@
+package nl.sikken.bertrik.cayenne.formatter;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the decimal formatter against String.format (the previous
+ * implementation of the cayenne formatters), for typical cayenne values.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DecimalFormatterBenchmark {
+
+    private static final int COUNT = 1024;
+
+    @Param({ "1", "4" })
+    private int decimals;
+
+    private final double[] values = new double[COUNT];
+    private final byte[] buffer = new byte[64];
+    private DecimalFormatter formatter;
+    private String formatString;
+    private int index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1234);
+        double scale = Math.pow(10, -decimals);
+        for (int i = 0; i < COUNT; i++) {
+            values[i] = scale * (random.nextInt(1 << 24) - (1 << 23));
+        }
+        formatter = DecimalFormatter.of(decimals);
+        formatString = "%." + decimals + "f";
+    }
+
+    private double nextValue() {
+        index = (index + 1) % COUNT;
+        return values[index];
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        return String.format(Locale.ROOT, formatString, nextValue());
+    }
+
+    @Benchmark
+    public String decimalFormatter() {
+        return formatter.format(nextValue());
+    }
+
+    @Benchmark
+    public int decimalFormatterIntoArray() {
+        return formatter.format(nextValue(), buffer, 0);
+    }
+
+}
@@ -0,0 +1,200 @@
+package nl.sikken.bertrik.cayenne;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Decodes many cayenne payloads at once into columns, e.g. for analysis of a
+ * complete flight log.
+ * 
+ * The payloads are split into chunks which are decoded in parallel with
+ * fork/join. Each chunk decodes straight into its part of the columns, without
+ * creating objects per item.
+ */
+public final class CayenneBatchDecoder {
+
+    private static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private final ECayennePayloadFormat format;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor, decoding on the common fork/join pool.
+     * 
+     * @param format the payload format
+     */
+    public CayenneBatchDecoder(ECayennePayloadFormat format) {
+        this(format, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param format    the payload format
+     * @param chunkSize the number of payloads decoded by one task
+     * @param pool      the fork/join pool to decode on
+     */
+    public CayenneBatchDecoder(ECayennePayloadFormat format, int chunkSize, ForkJoinPool pool) {
+        // fail early on unsupported formats
+        new CayenneMessage(format);
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Invalid chunk size " + chunkSize);
+        }
+        this.format = format;
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+    }
+
+    /**
+     * Decodes the payloads into columns.
+     * 
+     * @param timestamps the timestamp of each payload, e.g. in milliseconds since
+     *                   the epoch
+     * @param payloads   the raw payloads
+     * @return the columns
+     */
+    public CayenneColumns decode(long[] timestamps, byte[][] payloads) {
+        if (timestamps.length != payloads.length) {
+            throw new IllegalArgumentException(
+                    "Got " + timestamps.length + " timestamps for " + payloads.length + " payloads");
+        }
+        int numChunks = (payloads.length + chunkSize - 1) / chunkSize;
+        Chunk[] chunks = new Chunk[numChunks];
+        pool.invoke(new DecodeTask(payloads, chunks, 0, numChunks));
+        return merge(timestamps, chunks);
+    }
+
+    private CayenneColumns merge(long[] timestamps, Chunk[] chunks) {
+        // find all columns, ordered by key
+        TreeMap<Integer, CayenneColumn> columns = new TreeMap<>();
+        int errorCount = 0;
+        for (Chunk chunk : chunks) {
+            errorCount += chunk.errorCount;
+            for (int i = 0; i < chunk.numColumns; i++) {
+                int key = chunk.keys[i];
+                if (!columns.containsKey(key)) {
+                    double[] values = new double[timestamps.length];
+                    Arrays.fill(values, Double.NaN);
+                    columns.put(key, new CayenneColumn(chunk.channels[i], chunk.types[i], key & 0xFF, values));
+                }
+                double[] values = columns.get(key).getValues();
+                System.arraycopy(chunk.columns[i], 0, values, chunk.from, chunk.length);
+            }
+        }
+        return new CayenneColumns(timestamps, new ArrayList<>(columns.values()), errorCount);
+    }
+
+    /**
+     * Decodes a range of chunks, splitting it until a single chunk remains.
+     */
+    private final class DecodeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final byte[][] payloads;
+        private final Chunk[] chunks;
+        private final int from;
+        private final int to;
+
+        DecodeTask(byte[][] payloads, Chunk[] chunks, int from, int to) {
+            this.payloads = payloads;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new DecodeTask(payloads, chunks, from, mid), new DecodeTask(payloads, chunks, mid, to));
+            } else if (to > from) {
+                int start = from * chunkSize;
+                Chunk chunk = new Chunk(start, Math.min(chunkSize, payloads.length - start));
+                chunk.decode(payloads);
+                chunks[from] = chunk;
+            }
+        }
+    }
+
+    /**
+     * The columns of a consecutive range of payloads.
+     */
+    private final class Chunk implements ICayenneVisitor {
+
+        private final int from;
+        private final int length;
+
+        // columns, found by linear search since a payload has only a few items
+        private int numColumns;
+        private int[] keys = new int[8];
+        private int[] channels = new int[8];
+        private ECayenneItem[] types = new ECayenneItem[8];
+        private double[][] columns = new double[8][];
+
+        private int row;
+        private int errorCount;
+
+        Chunk(int from, int length) {
+            this.from = from;
+            this.length = length;
+        }
+
+        void decode(byte[][] payloads) {
+            CayenneMessage message = new CayenneMessage(format);
+            for (row = 0; row < length; row++) {
+                try {
+                    message.parse(ByteBuffer.wrap(payloads[from + row]), this);
+                } catch (CayenneException e) {
+                    // drop any values decoded before the error
+                    errorCount++;
+                    for (int i = 0; i < numColumns; i++) {
+                        columns[i][row] = Double.NaN;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onItem(int channel, ECayenneItem type, double[] values) {
+            for (int index = 0; index < values.length; index++) {
+                double[] column = findColumn(channel, type, index);
+                // the first item of a channel and type wins, like CayenneMessage.ofChannel
+                if (Double.isNaN(column[row])) {
+                    column[row] = values[index];
+                }
+            }
+        }
+
+        private double[] findColumn(int channel, ECayenneItem type, int index) {
+            int key = ((channel & 0xFF) << 16) | (type.getType() << 8) | index;
+            for (int i = 0; i < numColumns; i++) {
+                if (keys[i] == key) {
+                    return columns[i];
+                }
+            }
+            if (numColumns == keys.length) {
+                int capacity = 2 * numColumns;
+                keys = Arrays.copyOf(keys, capacity);
+                channels = Arrays.copyOf(channels, capacity);
+                types = Arrays.copyOf(types, capacity);
+                columns = Arrays.copyOf(columns, capacity);
+            }
+            double[] column = new double[length];
+            Arrays.fill(column, Double.NaN);
+            keys[numColumns] = key;
+            channels[numColumns] = channel;
+            types[numColumns] = type;
+            columns[numColumns] = column;
+            numColumns++;
+            return column;
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+package nl.sikken.bertrik.cayenne;
+
+import java.util.Locale;
+
+/**
+ * One column of batch decoded cayenne data: one value of one (channel, type)
+ * pair, for each decoded payload.
+ */
+public final class CayenneColumn {
+
+    private final int channel;
+    private final ECayenneItem type;
+    private final int index;
+    private final double[] values;
+
+    CayenneColumn(int channel, ECayenneItem type, int index, double[] values) {
+        this.channel = channel;
+        this.type = type;
+        this.index = index;
+        this.values = values;
+    }
+
+    public int getChannel() {
+        return channel;
+    }
+
+    public ECayenneItem getType() {
+        return type;
+    }
+
+    /**
+     * @return the index of the value within the item, e.g. 0 for the latitude of
+     *         a GPS location
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the values, one per payload, NaN if the payload has no such item,
+     *         the array is not copied
+     */
+    public double[] getValues() {
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "{chan=%d,type=%s,index=%d}", channel, type, index);
+    }
+
+}
@@ -0,0 +1,71 @@
+package nl.sikken.bertrik.cayenne;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of batch decoding cayenne payloads, as struct-of-arrays columns.
+ * 
+ * Row i of every column belongs to payload i and timestamp i. The arrays are
+ * not copied, so they can be handed to plotting and statistics code directly.
+ */
+public final class CayenneColumns {
+
+    private final long[] timestamps;
+    private final List<CayenneColumn> columns;
+    private final int errorCount;
+
+    CayenneColumns(long[] timestamps, List<CayenneColumn> columns, int errorCount) {
+        this.timestamps = timestamps;
+        this.columns = Collections.unmodifiableList(columns);
+        this.errorCount = errorCount;
+    }
+
+    /**
+     * @return the number of rows, one for each payload
+     */
+    public int getRowCount() {
+        return timestamps.length;
+    }
+
+    /**
+     * @return the timestamps, one for each payload
+     */
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    /**
+     * @return the columns, ordered by channel, type and index
+     */
+    public List<CayenneColumn> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Finds the values of a column.
+     * 
+     * @param channel the channel
+     * @param type    the type
+     * @param index   the index of the value within the item
+     * @return the values, or null if no payload has such an item
+     */
+    public double[] getColumn(int channel, ECayenneItem type, int index) {
+        for (CayenneColumn column : columns) {
+            if (((column.getChannel() & 0xFF) == (channel & 0xFF)) && (column.getType() == type)
+                    && (column.getIndex() == index)) {
+                return column.getValues();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of payloads that could not be decoded, their rows are
+     *         NaN in every column
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+}
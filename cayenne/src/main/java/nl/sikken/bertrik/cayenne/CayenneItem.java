@@ -13,7 +13,7 @@ public final class CayenneItem {
 
     private final int channel;
     private final ECayenneItem type;
-    private final Number[] values;
+    private final double[] values;
 
     /**
      * Constructor.
@@ -22,12 +22,39 @@ public final class CayenneItem {
      * @param type    the type
      * @param values  the values
      */
-    public CayenneItem(int channel, ECayenneItem type, Number[] values) {
+    public CayenneItem(int channel, ECayenneItem type, double[] values) {
         this.channel = channel;
         this.type = type;
         this.values = values.clone();
     }
 
+    /**
+     * Constructor for a single value
+     * 
+     * @param channel the unique channel
+     * @param type    the type
+     * @param value   the value
+     */
+    public CayenneItem(int channel, ECayenneItem type, double value) {
+        this(channel, type, new double[] { value });
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param channel the unique channel
+     * @param type    the type
+     * @param values  the values
+     */
+    public CayenneItem(int channel, ECayenneItem type, Number[] values) {
+        this.channel = channel;
+        this.type = type;
+        this.values = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            this.values[i] = values[i].doubleValue();
+        }
+    }
+
     /**
      * Constructor for a single value
      * 
@@ -47,12 +74,34 @@ public final class CayenneItem {
         return type;
     }
 
+    /**
+     * @return the values, as integers or longs for the integer types and as
+     *         doubles for the others
+     */
     public Number[] getValues() {
-        return values.clone();
+        return type.toNumbers(values);
     }
 
+    /**
+     * @return the first value, with the same type as in {@link #getValues()}
+     */
     public Number getValue() {
-        return values[0];
+        return getValues()[0];
+    }
+
+    /**
+     * @return the number of values
+     */
+    public int getValueCount() {
+        return values.length;
+    }
+
+    /**
+     * @param index the index of the value
+     * @return the value
+     */
+    public double getDoubleValue(int index) {
+        return values[index];
     }
 
     public String[] format() {
@@ -86,7 +135,8 @@ public final class CayenneItem {
         try {
             int type = bb.get() & 0xFF;
             ECayenneItem ct = ECayenneItem.parse(type);
-            Number[] values = ct.parse(bb);
+            double[] values = new double[ct.getLength()];
+            ct.parse(bb, values, 0);
             return new CayenneItem(channel, ct, values);
         } catch (BufferUnderflowException e) {
             throw new CayenneException(e);
@@ -98,6 +148,13 @@ public final class CayenneItem {
         return String.format(Locale.ROOT, "{chan=%d,type=%s,value=%s}", channel, type, Arrays.toString(format()));
     }
 
+    /**
+     * @return the number of bytes of the encoded item, including channel and type
+     */
+    public int getEncodedSize() {
+        return 2 + type.getSize();
+    }
+
     public void encode(ByteBuffer bb) throws CayenneException {
         try {
             bb.put((byte) channel);
@@ -1,11 +1,13 @@
 package nl.sikken.bertrik.cayenne;
 
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A cayenne message containing cayenne data items.
@@ -14,6 +16,10 @@ public final class CayenneMessage {
 
     private final ECayennePayloadFormat format;
     private final List<CayenneItem> items = new ArrayList<>();
+    private final CayenneItem[] channelIndex = new CayenneItem[256];
+    private final Map<ECayenneItem, List<CayenneItem>> typeIndex = new EnumMap<>(ECayenneItem.class);
+    private final int[] declaredLengths = new int[256];
+    private double[][] valuesBuffers = new double[4][];
 
     public CayenneMessage() {
         this(ECayennePayloadFormat.DYNAMIC_SENSOR_PAYLOAD);
@@ -33,6 +39,7 @@ public final class CayenneMessage {
             throw new IllegalArgumentException("Payload format not supported: " + format);
         }
         this.format = format;
+        Arrays.fill(declaredLengths, -1);
     }
 
     /**
@@ -42,23 +49,92 @@ public final class CayenneMessage {
      * @throws CayenneException in case of a parsing problem
      */
     public void parse(byte[] data) throws CayenneException {
-        ByteBuffer bb = ByteBuffer.wrap(data);
-        int channel = 0;
-        while (bb.hasRemaining()) {
-            CayenneItem item;
-            switch (format) {
-            case DYNAMIC_SENSOR_PAYLOAD:
-                item = CayenneItem.parse(bb);
-                break;
-            case PACKED_SENSOR_PAYLOAD:
-                item = CayenneItem.parsePacked(bb, channel);
-                channel++;
-                break;
-            default:
-                throw new IllegalStateException("Unsupported cayenne payload: " + format);
+        parse(ByteBuffer.wrap(data), (channel, type, values) -> add(new CayenneItem(channel, type, values)));
+    }
+
+    /**
+     * Parses the remaining bytes of the buffer, passing each item to the visitor
+     * as soon as it is parsed. The items are not added to this message.
+     * 
+     * @param bb      the raw data
+     * @param visitor the visitor
+     * @throws CayenneException in case of a parsing problem
+     */
+    public void parse(ByteBuffer bb, ICayenneVisitor visitor) throws CayenneException {
+        try {
+            int index = 0;
+            while (bb.hasRemaining()) {
+                int channel;
+                switch (format) {
+                case DYNAMIC_SENSOR_PAYLOAD:
+                    channel = bb.get();
+                    break;
+                case PACKED_SENSOR_PAYLOAD:
+                    channel = index;
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported cayenne payload: " + format);
+                }
+                int code = bb.get() & 0xFF;
+                ECayenneItem type = ECayenneItem.find(code);
+                if (type != null) {
+                    double[] values = getValuesBuffer(type.getLength());
+                    type.parse(bb, values, 0);
+                    visitor.onItem(channel, type, values);
+                } else if (declaredLengths[code] >= 0) {
+                    skip(bb, code);
+                } else if (visitor.onUnknownType(channel, code, bb.remaining())) {
+                    // the length of this item is unknown, so is the start of the next one
+                    bb.position(bb.limit());
+                } else {
+                    throw new CayenneException("Invalid cayenne type " + code);
+                }
+                index++;
             }
-            add(item);
+        } catch (BufferUnderflowException e) {
+            throw new CayenneException(e);
+        }
+    }
+
+    /**
+     * Declares the data length of a type that is not known to this library, so
+     * items of this type are skipped instead of failing the rest of the message.
+     * 
+     * @param type   the type code, 0-255
+     * @param length the number of data bytes of an item of this type, at least 0
+     */
+    public void declareLength(int type, int length) {
+        if ((type < 0) || (type >= declaredLengths.length)) {
+            throw new IllegalArgumentException("Invalid cayenne type " + type);
+        }
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative length " + length + " for cayenne type " + type);
+        }
+        if (ECayenneItem.find(type) != null) {
+            throw new IllegalArgumentException("Cayenne type " + type + " is already known");
+        }
+        declaredLengths[type] = length;
+    }
+
+    private void skip(ByteBuffer bb, int code) throws CayenneException {
+        int length = declaredLengths[code];
+        if (bb.remaining() < length) {
+            throw new CayenneException("Not enough data for cayenne type " + code);
         }
+        bb.position(bb.position() + length);
+    }
+
+    // reuses one array per length for the values passed to a visitor
+    private double[] getValuesBuffer(int length) {
+        if (length >= valuesBuffers.length) {
+            valuesBuffers = Arrays.copyOf(valuesBuffers, length + 1);
+        }
+        double[] values = valuesBuffers[length];
+        if (values == null) {
+            values = new double[length];
+            valuesBuffers[length] = values;
+        }
+        return values;
     }
 
     /**
@@ -68,6 +144,13 @@ public final class CayenneMessage {
      */
     public void add(CayenneItem item) {
         items.add(item);
+
+        // the first item of a channel wins, like in the raw data
+        int slot = item.getChannel() & 0xFF;
+        if (channelIndex[slot] == null) {
+            channelIndex[slot] = item;
+        }
+        typeIndex.computeIfAbsent(item.getType(), t -> new ArrayList<>()).add(item);
     }
 
     /**
@@ -79,11 +162,44 @@ public final class CayenneMessage {
      *                          message too big)
      */
     public byte[] encode(int maxSize) throws CayenneException {
-        ByteBuffer bb = ByteBuffer.allocate(maxSize).order(ByteOrder.LITTLE_ENDIAN);
+        int size = encodedSize();
+        if (size > maxSize) {
+            throw new CayenneException("Encoded message too big: " + size + " > " + maxSize);
+        }
+        byte[] data = new byte[size];
+        encodeTo(ByteBuffer.wrap(data));
+        return data;
+    }
+
+    /**
+     * Encodes the cayenne message into a buffer, starting at its position. On
+     * return, the position is just after the encoded message.
+     * 
+     * @param bb the buffer
+     * @return the number of bytes encoded
+     * @throws CayenneException in case the message does not fit in the remaining
+     *                          space of the buffer
+     */
+    public int encodeTo(ByteBuffer bb) throws CayenneException {
+        int size = encodedSize();
+        if (size > bb.remaining()) {
+            throw new CayenneException("Encoded message too big: " + size + " > " + bb.remaining());
+        }
         for (CayenneItem item : items) {
             item.encode(bb);
         }
-        return Arrays.copyOfRange(bb.array(), 0, bb.position());
+        return size;
+    }
+
+    /**
+     * @return the exact number of bytes of the encoded message
+     */
+    public int encodedSize() {
+        int size = 0;
+        for (CayenneItem item : items) {
+            size += item.getEncodedSize();
+        }
+        return size;
     }
 
     /**
@@ -101,7 +217,20 @@ public final class CayenneMessage {
      * @return the item, or null if it does not exist
      */
     public CayenneItem ofType(ECayenneItem type) {
-        return items.stream().filter(i -> (i.getType() == type)).findFirst().orElse(null);
+        List<CayenneItem> list = typeIndex.get(type);
+        return (list != null) ? list.get(0) : null;
+    }
+
+    /**
+     * Finds all items of a type.
+     * 
+     * @param type the desired type
+     * @return an immutable list of the items, in the order they appear in the raw
+     *         data
+     */
+    public List<CayenneItem> allOfType(ECayenneItem type) {
+        List<CayenneItem> list = typeIndex.get(type);
+        return (list != null) ? Collections.unmodifiableList(list) : Collections.emptyList();
     }
 
     /**
@@ -111,6 +240,11 @@ public final class CayenneMessage {
      * @return the item, or null if it does not exist
      */
     public CayenneItem ofChannel(int channel) {
+        CayenneItem item = channelIndex[channel & 0xFF];
+        if ((item == null) || (item.getChannel() == channel)) {
+            return item;
+        }
+        // another channel number in the same slot, e.g. -1 and 255
         return items.stream().filter(i -> (i.getChannel() == channel)).findFirst().orElse(null);
     }
 
@@ -1,8 +1,6 @@
 package nl.sikken.bertrik.cayenne;
 
 import java.nio.ByteBuffer;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.stream.Stream;
 
 import nl.sikken.bertrik.cayenne.formatter.FloatFormatter;
@@ -18,23 +16,39 @@ public enum ECayenneItem {
     DIGITAL_OUTPUT(1, new IntegerFormatter(1, 1, false)),
     ANALOG_INPUT(2, new FloatFormatter(1, 2, 0.01, true)),
     ANALOG_OUTPUT(3, new FloatFormatter(1, 2, 0.01, true)),
+    GENERIC_SENSOR(100, new IntegerFormatter(1, 4, false)),
     ILLUMINANCE(101, new FloatFormatter(1, 2, 1.0, false)),
     PRESENCE(102, new IntegerFormatter(1, 1, false)),
     TEMPERATURE(103, new FloatFormatter(1, 2, 0.1, true)),
     HUMIDITY(104, new FloatFormatter(1, 1, 0.5, false)),
     ACCELEROMETER(113, new FloatFormatter(3, 2, 0.001, true)),
     BAROMETER(115, new FloatFormatter(1, 2, 0.1, false)),
+    VOLTAGE(116, new FloatFormatter(1, 2, 0.01, false)),
+    CURRENT(117, new FloatFormatter(1, 2, 0.001, false)),
+    FREQUENCY(118, new FloatFormatter(1, 4, 1.0, false)),
+    PERCENTAGE(120, new FloatFormatter(1, 1, 1.0, false)),
+    ALTITUDE(121, new FloatFormatter(1, 2, 1.0, true)),
+    LOAD(122, new FloatFormatter(1, 3, 0.001, true)),
+    CONCENTRATION(125, new FloatFormatter(1, 2, 1.0, false)),
+    POWER(128, new FloatFormatter(1, 2, 1.0, false)),
+    SPEED(129, new FloatFormatter(1, 2, 0.01, false)),
+    DISTANCE(130, new FloatFormatter(1, 4, 0.001, false)),
+    ENERGY(131, new FloatFormatter(1, 4, 0.001, false)),
+    DIRECTION(132, new FloatFormatter(1, 2, 1.0, false)),
+    UNIX_TIME(133, new IntegerFormatter(1, 4, false)),
     GYROMETER(134, new FloatFormatter(3, 2, 0.01, true)),
+    COLOUR(135, new IntegerFormatter(3, 1, false)),
     GPS_LOCATION(136, new GpsFormatter()),
+    SWITCH(142, new IntegerFormatter(1, 1, false)),
     ;
 
     private final int type;
     private final IFormatter formatter;
     
-    // reverse lookup table
-    private static final Map<Integer,ECayenneItem> LOOKUP  = new HashMap<Integer,ECayenneItem>();
+    // lookup table indexed by type code
+    private static final ECayenneItem[] LOOKUP = new ECayenneItem[256];
     static {
-        Stream.of(values()).forEach((e) -> LOOKUP.put(e.getType(), e));
+        Stream.of(values()).forEach((e) -> LOOKUP[e.getType()] = e);
     }    
     
     /**
@@ -51,21 +65,95 @@ public enum ECayenneItem {
      * Parses a type code into an enum.
      * 
      * @param type the type code
-     * @return the enum, or null if not found
-     * @throws CayenneException  
+     * @return the enum
+     * @throws CayenneException if the type code is unknown
      */
     public static ECayenneItem parse(int type) throws CayenneException {
-    	ECayenneItem item = LOOKUP.get(type);
-    	if (item == null) {
+        ECayenneItem item = find(type);
+        if (item == null) {
             throw new CayenneException("Invalid cayenne type " + type);
-    	}
-    	return item;
+        }
+        return item;
+    }
+
+    /**
+     * Finds the enum of a type code.
+     * 
+     * @param type the type code
+     * @return the enum, or null if not found
+     */
+    public static ECayenneItem find(int type) {
+        return ((type >= 0) && (type < LOOKUP.length)) ? LOOKUP[type] : null;
     }
 
     public int getType() {
         return type;
     }
     
+    /**
+     * @return the number of values of an item of this type
+     */
+    public int getLength() {
+        return formatter.getLength();
+    }
+
+    /**
+     * @return the number of bytes of the encoded values of an item of this type
+     */
+    public int getSize() {
+        return formatter.getSize();
+    }
+
+    /**
+     * @param index the index of the value within the item
+     * @return the number of decimals of the value when formatted
+     */
+    public int getDecimals(int index) {
+        return formatter.getDecimals(index);
+    }
+
+    /**
+     * Formats the measurement values into an array of strings.
+     * 
+     * @param values the values to format
+     * @return the formatted values
+     */
+    public String[] format(double[] values) {
+        return formatter.format(values, 0);
+    }
+
+    /**
+     * Converts the measurement values into numbers, as integers or longs for the
+     * integer types and as doubles for the others.
+     * 
+     * @param values the values to convert
+     * @return the values as numbers
+     */
+    public Number[] toNumbers(double[] values) {
+        return formatter.toNumbers(values, 0);
+    }
+
+    /**
+     * Parses the contents of the byte buffer into an array of numerical values.
+     * 
+     * @param bb the byte buffer to parse from
+     * @param values the array to put the values in
+     * @param offset the index in the array of the first value
+     */
+    public void parse(ByteBuffer bb, double[] values, int offset) {
+        formatter.parse(bb, values, offset);
+    }
+
+    /**
+     * Encodes an array of numerical values into a byte buffer.
+     * 
+     * @param bb the byte buffer to encode into
+     * @param values the numerical values
+     */
+    public void encode(ByteBuffer bb, double[] values) {
+        formatter.encode(bb, values, 0);
+    }
+
     /**
      * Formats the measurement values into an array of strings. 
      * 
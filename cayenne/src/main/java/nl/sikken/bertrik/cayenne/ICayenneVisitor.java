@@ -0,0 +1,33 @@
+package nl.sikken.bertrik.cayenne;
+
+/**
+ * Receives the items of a cayenne message while it is being parsed, see
+ * {@link CayenneMessage#parse(java.nio.ByteBuffer, ICayenneVisitor)}.
+ */
+public interface ICayenneVisitor {
+
+    /**
+     * Called for each item, in the order it appears in the raw data.
+     * 
+     * @param channel the channel
+     * @param type    the type
+     * @param values  the values, as many as the type has (e.g. 3 for a GPS
+     *                location), the array is only valid during the call
+     */
+    void onItem(int channel, ECayenneItem type, double[] values);
+
+    /**
+     * Called for an item of a type that is not known and has no declared length,
+     * so the rest of the data cannot be parsed. By default, parsing fails.
+     * 
+     * @param channel   the channel
+     * @param type      the type code
+     * @param remaining the number of bytes after the type code, which are skipped
+     * @return true to skip the rest of the data and keep the items parsed so far,
+     *         false to fail parsing with a {@link CayenneException}
+     */
+    default boolean onUnknownType(int channel, int type, int remaining) {
+        return false;
+    }
+
+}
@@ -1,7 +1,6 @@
 package nl.sikken.bertrik.cayenne;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.nio.ByteBuffer;
 
 /**
  * Wrapper around CayenneMessage to make composing a Cayenne message a bit
@@ -13,7 +12,8 @@ import java.util.Set;
 public final class SimpleCayenne {
 
     private final CayenneMessage message = new CayenneMessage();
-    private final Set<Integer> channels = new HashSet<>();
+    // bitmap of the channels in use, a channel is encoded as one byte
+    private final long[] channels = new long[4];
 
     public void addDigitalInput(int channel, int value) throws CayenneException {
         CayenneItem item = new CayenneItem(channel, ECayenneItem.DIGITAL_INPUT, value);
@@ -56,7 +56,7 @@ public final class SimpleCayenne {
     }
 
     public void addAccelerometer(int channel, double x, double y, double z) throws CayenneException {
-        CayenneItem item = new CayenneItem(channel, ECayenneItem.ACCELEROMETER, new Double[] { x, y, z });
+        CayenneItem item = new CayenneItem(channel, ECayenneItem.ACCELEROMETER, new double[] { x, y, z });
         addItem(item);
     }
 
@@ -66,24 +66,26 @@ public final class SimpleCayenne {
     }
 
     public void addGyrometer(int channel, double x, double y, double z) throws CayenneException {
-        CayenneItem item = new CayenneItem(channel, ECayenneItem.GYROMETER, new Double[] { x, y, z });
+        CayenneItem item = new CayenneItem(channel, ECayenneItem.GYROMETER, new double[] { x, y, z });
         addItem(item);
     }
 
     public void addGps(int channel, double latitude, double longitude, double altitude) throws CayenneException {
         CayenneItem item = new CayenneItem(channel, ECayenneItem.GPS_LOCATION,
-                new Double[] { latitude, longitude, altitude });
+                new double[] { latitude, longitude, altitude });
         addItem(item);
     }
 
     private void addItem(CayenneItem item) throws CayenneException {
         // verify that channel is unique
         int channel = item.getChannel();
-        if (channels.contains(channel)) {
+        int slot = channel & 0xFF;
+        long bit = 1L << (slot & 63);
+        if ((channels[slot >> 6] & bit) != 0) {
             throw new CayenneException("Channel id " + channel + " need to be unique!");
         }
         // add the item
-        channels.add(channel);
+        channels[slot >> 6] |= bit;
         message.add(item);
     }
 
@@ -99,6 +101,24 @@ public final class SimpleCayenne {
         return message.encode(maxSize);
     }
 
+    /**
+     * Encodes the data into the buffer, starting at its position.
+     * 
+     * @param bb the buffer
+     * @return the length of data encoded
+     * @throws CayenneException in case the message does not fit in the buffer
+     */
+    public int encodeTo(ByteBuffer bb) throws CayenneException {
+        return message.encodeTo(bb);
+    }
+
+    /**
+     * @return the exact length of the encoded data
+     */
+    public int encodedSize() {
+        return message.encodedSize();
+    }
+
     @Override
     public String toString() {
         return message.toString();
@@ -1,12 +1,65 @@
 package nl.sikken.bertrik.cayenne.formatter;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * Abstract base class of formatters.
  */
 public abstract class BaseFormatter implements IFormatter {
 
+    @Override
+    public String[] format(double[] values, int offset) {
+        String[] formatted = new String[getLength()];
+        for (int i = 0; i < formatted.length; i++) {
+            formatted[i] = DecimalFormatter.of(getDecimals(i)).format(values[offset + i]);
+        }
+        return formatted;
+    }
+
+    @Override
+    public Number[] toNumbers(double[] values, int offset) {
+        return toNumbers(Arrays.copyOfRange(values, offset, offset + getLength()));
+    }
+
+    @Override
+    public String[] format(Number[] values) {
+        return format(toDoubles(values), 0);
+    }
+
+    @Override
+    public void encode(ByteBuffer bb, Number[] values) {
+        encode(bb, toDoubles(values), 0);
+    }
+
+    /**
+     * Converts an array of numbers into an array of doubles.
+     * 
+     * @param values the numbers
+     * @return the doubles
+     */
+    protected static double[] toDoubles(Number[] values) {
+        double[] doubles = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            doubles[i] = values[i].doubleValue();
+        }
+        return doubles;
+    }
+
+    /**
+     * Converts an array of doubles into an array of boxed doubles.
+     * 
+     * @param values the doubles
+     * @return the boxed doubles
+     */
+    protected static Double[] toNumbers(double[] values) {
+        Double[] numbers = new Double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            numbers[i] = values[i];
+        }
+        return numbers;
+    }
+
     /**
      * Gets an integer value from the byte buffer.
      * 
@@ -15,8 +68,8 @@ public abstract class BaseFormatter implements IFormatter {
      * @param signed whether it should be interpreted as signed value or not
      * @return the value
      */
-    protected int getValue(ByteBuffer bb, int n, boolean signed) {
-        int val = bb.get();
+    protected long getValue(ByteBuffer bb, int n, boolean signed) {
+        long val = bb.get();
         val = signed ? val : val & 0xFF;
         for (int i = 1; i < n; i++) {
             val <<= 8;
@@ -32,7 +85,7 @@ public abstract class BaseFormatter implements IFormatter {
      * @param n     the number of bytes to put
      * @param value the value to encode
      */
-    protected void putValue(ByteBuffer bb, int n, int value) {
+    protected void putValue(ByteBuffer bb, int n, long value) {
         int shift = (n - 1) * 8;
         for (int i = 0; i < n; i++) {
             byte b = (byte) ((value >> shift) & 0xFF);
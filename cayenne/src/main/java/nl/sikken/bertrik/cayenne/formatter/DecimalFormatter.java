@@ -0,0 +1,166 @@
+package nl.sikken.bertrik.cayenne.formatter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Formats numbers with a fixed number of decimals, with exactly the same result
+ * as {@code String.format(Locale.ROOT, "%.nf", value)}, but writing the digits
+ * directly into a byte array.
+ *
+ * String.format rounds the shortest decimal representation of the double (as in
+ * Double.toString) half-up. The fast path rounds the scaled binary value
+ * instead, which gives the same result unless the value is (almost) halfway
+ * between two outcomes. Those values, and values too large for the fast path,
+ * are formatted through BigDecimal.
+ *
+ * This class is public API of the cayenne module and does not depend on any
+ * cayenne type, so code outside the module can use it too (e.g. the UKHAS
+ * sentence writer of the bridge). Keep its methods and output stable.
+ */
+public final class DecimalFormatter {
+
+    // powers of ten for the fast path, more decimals always take the slow path
+    private static final long[] POW10 = { 1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L,
+            100000000L, 1000000000L };
+    // largest scaled value for which the fast path is exact
+    private static final double MAX_SCALED = 1E15;
+    // sign, up to 15 digits and a decimal point
+    private static final int MAX_FAST_LENGTH = 17;
+    // sign and digits of Double.MAX_VALUE and a decimal point
+    private static final int MAX_SLOW_LENGTH = 311;
+
+    private static final DecimalFormatter[] INSTANCES = createInstances();
+
+    private final int decimals;
+
+    /**
+     * Constructor.
+     *
+     * @param decimals the number of decimals
+     */
+    public DecimalFormatter(int decimals) {
+        if (decimals < 0) {
+            throw new IllegalArgumentException("Negative number of decimals: " + decimals);
+        }
+        this.decimals = decimals;
+    }
+
+    private static DecimalFormatter[] createInstances() {
+        DecimalFormatter[] instances = new DecimalFormatter[POW10.length];
+        for (int i = 0; i < instances.length; i++) {
+            instances[i] = new DecimalFormatter(i);
+        }
+        return instances;
+    }
+
+    /**
+     * Returns a (shared) formatter for the number of decimals.
+     *
+     * @param decimals the number of decimals
+     * @return the formatter
+     */
+    public static DecimalFormatter of(int decimals) {
+        return ((decimals >= 0) && (decimals < INSTANCES.length)) ? INSTANCES[decimals]
+                : new DecimalFormatter(decimals);
+    }
+
+    public int getDecimals() {
+        return decimals;
+    }
+
+    /**
+     * Gets an upper bound of the length of a formatted value, for sizing the
+     * array to format into.
+     *
+     * @param value the value
+     * @return the maximum number of bytes written for the value
+     */
+    public int getMaxLength(double value) {
+        return ((Math.abs(value) < MAX_SCALED) ? MAX_FAST_LENGTH : MAX_SLOW_LENGTH) + decimals;
+    }
+
+    /**
+     * Formats a value into a string.
+     *
+     * @param value the value
+     * @return the formatted value
+     */
+    public String format(double value) {
+        byte[] buffer = new byte[getMaxLength(value)];
+        int length = format(value, buffer, 0);
+        return new String(buffer, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Formats a value into a byte array, as ASCII characters.
+     *
+     * @param value  the value
+     * @param buffer the array, with room for at least
+     *               {@link #getMaxLength(double)} bytes after the offset
+     * @param offset the index of the first byte to write
+     * @return the index after the last byte written
+     */
+    public int format(double value, byte[] buffer, int offset) {
+        if (Double.isNaN(value)) {
+            return putAscii("NaN", buffer, offset);
+        }
+        if (Double.isInfinite(value)) {
+            return putAscii((value > 0) ? "Infinity" : "-Infinity", buffer, offset);
+        }
+
+        // the sign is written for -0.0 and values rounding to zero too
+        int pos = offset;
+        if (Double.doubleToRawLongBits(value) < 0) {
+            buffer[pos++] = '-';
+        }
+        double abs = Math.abs(value);
+        if (decimals < POW10.length) {
+            long pow = POW10[decimals];
+            double scaled = abs * pow;
+            if (scaled < MAX_SCALED) {
+                double floor = Math.floor(scaled);
+                double fraction = scaled - floor;
+                double margin = Math.ulp(abs) * pow + 2 * Math.ulp(scaled);
+                if (Math.abs(fraction - 0.5) > margin) {
+                    long units = (long) floor + ((fraction > 0.5) ? 1 : 0);
+                    pos = putDigits(units / pow, 1, buffer, pos);
+                    if (decimals > 0) {
+                        buffer[pos++] = '.';
+                        pos = putDigits(units % pow, decimals, buffer, pos);
+                    }
+                    return pos;
+                }
+            }
+        }
+
+        // slow path
+        BigDecimal rounded = new BigDecimal(Double.toString(abs)).setScale(decimals, RoundingMode.HALF_UP);
+        return putAscii(rounded.toPlainString(), buffer, pos);
+    }
+
+    // writes a non-negative value with at least the given number of digits
+    private static int putDigits(long value, int minDigits, byte[] buffer, int offset) {
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, minDigits);
+        long remaining = value;
+        for (int pos = offset + digits - 1; pos >= offset; pos--) {
+            buffer[pos] = (byte) ('0' + (remaining % 10));
+            remaining /= 10;
+        }
+        return offset + digits;
+    }
+
+    private static int putAscii(String s, byte[] buffer, int offset) {
+        int pos = offset;
+        for (int i = 0; i < s.length(); i++) {
+            buffer[pos++] = (byte) s.charAt(i);
+        }
+        return pos;
+    }
+
+}
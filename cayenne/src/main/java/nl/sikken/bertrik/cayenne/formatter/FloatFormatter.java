@@ -1,7 +1,6 @@
 package nl.sikken.bertrik.cayenne.formatter;
 
 import java.nio.ByteBuffer;
-import java.util.Locale;
 
 /**
  * Formatter for cayenne items which represent real numbers.
@@ -12,7 +11,7 @@ public final class FloatFormatter extends BaseFormatter {
     private final int size;
     private final double scale;
     private final boolean signed;
-    private final String formatString;
+    private final int decimals;
 
     /**
      * Constructor.
@@ -27,40 +26,51 @@ public final class FloatFormatter extends BaseFormatter {
         this.size = size;
         this.scale = scale;
         this.signed = signed;
-        this.formatString = createFormatString(scale);
+        this.decimals = calculateDecimals(scale);
     }
     
-    private String createFormatString(double scale) {
+    private int calculateDecimals(double scale) {
         int decimals = 0;
         for (double d = scale; d < 1.0; d *= 10) {
             decimals++;
         }
-        return String.format(Locale.ROOT, "%%.%df", decimals);
+        return decimals;
     }
-    
+
     @Override
-    public Double[] parse(ByteBuffer bb) {
-        Double[] values = new Double[length];
-        for (int i = 0; i < length; i++) {
-            values[i] = scale * getValue(bb, size, signed);
-        }
-        return values;
+    public int getLength() {
+        return length;
     }
-    
+
     @Override
-    public String[] format(Number[] values) {
-        String[] formatted = new String[length];
+    public int getSize() {
+        return length * size;
+    }
+
+    @Override
+    public void parse(ByteBuffer bb, double[] values, int offset) {
         for (int i = 0; i < length; i++) {
-            formatted[i] = String.format(Locale.ROOT, formatString, values[i].doubleValue());
+            values[offset + i] = scale * getValue(bb, size, signed);
         }
-        return formatted;
     }
 
     @Override
-    public void encode(ByteBuffer bb, Number[] values) {
+    public int getDecimals(int index) {
+        return decimals;
+    }
+
+    @Override
+    public void encode(ByteBuffer bb, double[] values, int offset) {
         for (int i = 0; i < length; i++) {
-            putValue(bb, size, (int)Math.round(values[i].doubleValue() / scale));
+            putValue(bb, size, Math.round(values[offset + i] / scale));
         }
     }
 
+    @Override
+    public Double[] parse(ByteBuffer bb) {
+        double[] values = new double[length];
+        parse(bb, values, 0);
+        return toNumbers(values);
+    }
+
 }
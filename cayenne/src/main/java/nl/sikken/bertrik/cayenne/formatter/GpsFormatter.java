@@ -1,7 +1,6 @@
 package nl.sikken.bertrik.cayenne.formatter;
 
 import java.nio.ByteBuffer;
-import java.util.Locale;
 
 /**
  * Formatter for cayenne items which represent a GPS position.
@@ -12,24 +11,39 @@ public final class GpsFormatter extends BaseFormatter {
     private static final double ALT_SCALE = 1E-2;
 
     @Override
-    public Double[] parse(ByteBuffer bb) {
-        double lat = LAT_LON_SCALE * getValue(bb, 3, true);
-        double lon = LAT_LON_SCALE * getValue(bb, 3, true);
-        double alt = ALT_SCALE * getValue(bb, 3, true);
-        return new Double[] { lat, lon, alt };
+    public int getLength() {
+        return 3;
+    }
+
+    @Override
+    public int getSize() {
+        return 9;
     }
 
     @Override
-    public String[] format(Number[] values) {
-        return new String[] { String.format(Locale.ROOT, "%.4f", values[0]),
-                String.format(Locale.ROOT, "%.4f", values[1]), String.format(Locale.ROOT, "%.2f", values[2]) };
+    public void parse(ByteBuffer bb, double[] values, int offset) {
+        values[offset] = LAT_LON_SCALE * getValue(bb, 3, true);
+        values[offset + 1] = LAT_LON_SCALE * getValue(bb, 3, true);
+        values[offset + 2] = ALT_SCALE * getValue(bb, 3, true);
     }
 
     @Override
-    public void encode(ByteBuffer bb, Number[] values) {
-        putValue(bb, 3, (int) Math.round(values[0].doubleValue() / LAT_LON_SCALE));
-        putValue(bb, 3, (int) Math.round(values[1].doubleValue() / LAT_LON_SCALE));
-        putValue(bb, 3, (int) Math.round(values[2].doubleValue() / ALT_SCALE));
+    public int getDecimals(int index) {
+        return (index < 2) ? 4 : 2;
+    }
+
+    @Override
+    public void encode(ByteBuffer bb, double[] values, int offset) {
+        putValue(bb, 3, Math.round(values[offset] / LAT_LON_SCALE));
+        putValue(bb, 3, Math.round(values[offset + 1] / LAT_LON_SCALE));
+        putValue(bb, 3, Math.round(values[offset + 2] / ALT_SCALE));
+    }
+
+    @Override
+    public Double[] parse(ByteBuffer bb) {
+        double[] values = new double[3];
+        parse(bb, values, 0);
+        return toNumbers(values);
     }
 
 }
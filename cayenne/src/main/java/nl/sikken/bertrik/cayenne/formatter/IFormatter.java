@@ -5,20 +5,79 @@ import java.nio.ByteBuffer;
 /**
  * Interface for cayenne data structures that can be formatted as an array of
  * strings.
+ * 
+ * Values are handled as primitive doubles, the methods working on
+ * {@link Number} arrays are kept for compatibility.
  */
 public interface IFormatter {
 
+    /**
+     * @return the number of values of an item, e.g. 3 for a GPS location
+     */
+    int getLength();
+
+    /**
+     * @return the number of bytes of the encoded values of an item
+     */
+    int getSize();
+
     /**
      * Parses raw data into an array of doubles.
      * 
+     * @param bb     the byte buffer
+     * @param values the array to put the values in
+     * @param offset the index in the array of the first value
+     */
+    void parse(ByteBuffer bb, double[] values, int offset);
+
+    /**
+     * Gets the number of decimals of a value when formatted, e.g. for a GPS
+     * location 4 for the latitude and longitude and 2 for the altitude.
+     * 
+     * @param index the index of the value within the item
+     * @return the number of decimals
+     */
+    int getDecimals(int index);
+
+    /**
+     * Formats the data into an array of strings. For example, for a GPS location it
+     * outputs: latitude in [0], longitude in [1], altitude in [2].
+     * 
+     * @param values the values
+     * @param offset the index in the array of the first value
+     * @return the string representation
+     */
+    String[] format(double[] values, int offset);
+
+    /**
+     * Encodes the data into the byte buffer
+     * 
+     * @param bb     the buffer to encode to
+     * @param values the values to encode
+     * @param offset the index in the array of the first value
+     */
+    void encode(ByteBuffer bb, double[] values, int offset);
+
+    /**
+     * Converts values into numbers, of the same types as returned by
+     * {@link #parse(ByteBuffer)}.
+     * 
+     * @param values the values
+     * @param offset the index in the array of the first value
+     * @return the values as numbers
+     */
+    Number[] toNumbers(double[] values, int offset);
+
+    /**
+     * Parses raw data into an array of numbers.
+     * 
      * @param bb the byte buffer
      * @return the parsed value as a number
      */
     Number[] parse(ByteBuffer bb);
 
     /**
-     * Formats the data into an array of strings. For example, for a GPS location it
-     * outputs: latitude in [0], longitude in [1], altitude in [2].
+     * Formats the data into an array of strings.
      * 
      * @param values the value as number array
      * @return the string representation
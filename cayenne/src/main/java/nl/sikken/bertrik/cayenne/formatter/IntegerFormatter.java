@@ -1,7 +1,6 @@
 package nl.sikken.bertrik.cayenne.formatter;
 
 import java.nio.ByteBuffer;
-import java.util.Locale;
 
 public final class IntegerFormatter extends BaseFormatter {
 
@@ -23,28 +22,64 @@ public final class IntegerFormatter extends BaseFormatter {
     }
 
     @Override
-    public Number[] parse(ByteBuffer bb) {
-        Integer[] values = new Integer[length];
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public int getSize() {
+        return length * size;
+    }
+
+    @Override
+    public void parse(ByteBuffer bb, double[] values, int offset) {
         for (int i = 0; i < length; i++) {
-            values[i] = getValue(bb, size, signed);
+            values[offset + i] = getValue(bb, size, signed);
         }
-        return values;
     }
 
     @Override
-    public String[] format(Number[] values) {
+    public int getDecimals(int index) {
+        return 0;
+    }
+
+    @Override
+    public String[] format(double[] values, int offset) {
         String[] formatted = new String[length];
         for (int i = 0; i < length; i++) {
-            formatted[i] = String.format(Locale.ROOT, "%d", values[i].intValue());
+            formatted[i] = Long.toString((long) values[offset + i]);
         }
         return formatted;
     }
 
     @Override
-    public void encode(ByteBuffer bb, Number[] values) {
+    public void encode(ByteBuffer bb, double[] values, int offset) {
         for (int i = 0; i < length; i++) {
-            putValue(bb, size, values[i].intValue());
+            putValue(bb, size, (long) values[offset + i]);
         }
     }
 
+    @Override
+    public Number[] toNumbers(double[] values, int offset) {
+        // 4-byte unsigned values do not fit in an integer
+        boolean fitsInt = (size < 4) || signed;
+        Number[] numbers = fitsInt ? new Integer[length] : new Long[length];
+        for (int i = 0; i < length; i++) {
+            long value = (long) values[offset + i];
+            if (fitsInt) {
+                numbers[i] = (int) value;
+            } else {
+                numbers[i] = value;
+            }
+        }
+        return numbers;
+    }
+
+    @Override
+    public Number[] parse(ByteBuffer bb) {
+        double[] values = new double[length];
+        parse(bb, values, 0);
+        return toNumbers(values, 0);
+    }
+
 }
@@ -0,0 +1,87 @@
+package nl.sikken.bertrik.cayenne;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for CayenneBatchDecoder.
+ */
+public final class CayenneBatchDecoderTest {
+
+    /**
+     * Verifies that batch decoding gives the same values as decoding the payloads
+     * one by one.
+     * 
+     * @throws CayenneException in case of a problem encoding/decoding
+     */
+    @Test
+    public void testSameAsMessage() throws CayenneException {
+        Random random = new Random(1234);
+        int count = 1000;
+        long[] timestamps = new long[count];
+        byte[][] payloads = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = 1_600_000_000_000L + 60_000L * i;
+            SimpleCayenne cayenne = new SimpleCayenne();
+            cayenne.addTemperature(1, random.nextInt(400) / 10.0);
+            if ((i % 3) == 0) {
+                cayenne.addGps(2, 52.0 + random.nextDouble(), 4.0 + random.nextDouble(), random.nextInt(30000));
+            }
+            cayenne.addPresence(3, i % 12);
+            payloads[i] = cayenne.encode(100);
+        }
+        // a truncated payload
+        payloads[500] = new byte[] { 1, 0x67, 0x01 };
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            CayenneBatchDecoder decoder = new CayenneBatchDecoder(ECayennePayloadFormat.DYNAMIC_SENSOR_PAYLOAD, 64,
+                    pool);
+            CayenneColumns columns = decoder.decode(timestamps, payloads);
+
+            Assert.assertEquals(count, columns.getRowCount());
+            Assert.assertSame(timestamps, columns.getTimestamps());
+            Assert.assertEquals(1, columns.getErrorCount());
+            // temperature, latitude, longitude, altitude, presence
+            Assert.assertEquals(5, columns.getColumns().size());
+
+            double[] temperature = columns.getColumn(1, ECayenneItem.TEMPERATURE, 0);
+            double[] altitude = columns.getColumn(2, ECayenneItem.GPS_LOCATION, 2);
+            double[] presence = columns.getColumn(3, ECayenneItem.PRESENCE, 0);
+            Assert.assertNull(columns.getColumn(3, ECayenneItem.TEMPERATURE, 0));
+            for (int i = 0; i < count; i++) {
+                if (i == 500) {
+                    Assert.assertTrue(Double.isNaN(temperature[i]));
+                    continue;
+                }
+                CayenneMessage message = new CayenneMessage();
+                message.parse(payloads[i]);
+                Assert.assertEquals(message.ofChannel(1).getDoubleValue(0), temperature[i], 0.0);
+                CayenneItem gps = message.ofChannel(2);
+                if (gps != null) {
+                    Assert.assertEquals(gps.getDoubleValue(2), altitude[i], 0.0);
+                } else {
+                    Assert.assertTrue(Double.isNaN(altitude[i]));
+                }
+                Assert.assertEquals(message.ofChannel(3).getDoubleValue(0), presence[i], 0.0);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Verifies that an empty batch decodes into empty columns.
+     */
+    @Test
+    public void testEmpty() {
+        CayenneBatchDecoder decoder = new CayenneBatchDecoder(ECayennePayloadFormat.DYNAMIC_SENSOR_PAYLOAD);
+        CayenneColumns columns = decoder.decode(new long[0], new byte[0][]);
+        Assert.assertEquals(0, columns.getRowCount());
+        Assert.assertTrue(columns.getColumns().isEmpty());
+    }
+
+}
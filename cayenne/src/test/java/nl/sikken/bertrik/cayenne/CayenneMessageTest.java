@@ -1,6 +1,10 @@
 package nl.sikken.bertrik.cayenne;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -154,7 +158,7 @@ public final class CayenneMessageTest {
      */
     @Test(expected = CayenneException.class)
     public void testInvalidType() throws CayenneException {
-        new CayenneMessage().parse(new byte[] { 0, 100 });
+        new CayenneMessage().parse(new byte[] { 0, 99 });
     }
 
     /**
@@ -256,4 +260,201 @@ public final class CayenneMessageTest {
         Assert.assertEquals(25.5, message.ofChannel(1).getValue().doubleValue(), 0.01);
     }
 
+    /**
+     * Verifies that values are available as primitives, and format the same as
+     * through the compatibility API.
+     * 
+     * @throws CayenneException in case of a parsing exception
+     */
+    @Test
+    public void testPrimitiveValues() throws CayenneException {
+        byte[] data = { 0x01, 0x67, (byte) 0xFF, (byte) 0xD7, 0x06, 0x71, 0x04, (byte) 0xD2, (byte) 0xFB, 0x2E, 0x00,
+                0x00, 0x02, 0x00, 0x07 };
+        CayenneMessage payload = new CayenneMessage();
+        payload.parse(data);
+
+        CayenneItem accel = payload.ofChannel(6);
+        Assert.assertEquals(3, accel.getValueCount());
+        Assert.assertEquals(1.234, accel.getDoubleValue(0), 0.0001);
+        Assert.assertEquals(-1.234, accel.getDoubleValue(1), 0.0001);
+        Assert.assertEquals(3, accel.getType().getDecimals(0));
+
+        for (CayenneItem item : payload.getItems()) {
+            Assert.assertArrayEquals(item.getType().format(item.getValues()), item.format());
+        }
+        Assert.assertArrayEquals(new String[] { "7" }, payload.ofChannel(2).format());
+        Assert.assertArrayEquals(data, payload.encode(MAX_BUF_SIZE));
+    }
+
+    /**
+     * Verifies that the values of integer types are returned as integers, or as
+     * longs when they do not fit.
+     * 
+     * @throws CayenneException in case of a parsing exception
+     */
+    @Test
+    public void testIntegerValueTypes() throws CayenneException {
+        CayenneMessage message = new CayenneMessage();
+        message.add(new CayenneItem(1, ECayenneItem.DIGITAL_INPUT, 1));
+        message.add(new CayenneItem(2, ECayenneItem.UNIX_TIME, 4000000000L));
+        message.add(new CayenneItem(3, ECayenneItem.COLOUR, new Number[] { 1, 2, 3 }));
+        message.add(new CayenneItem(4, ECayenneItem.TEMPERATURE, 19.5));
+
+        CayenneMessage decoded = new CayenneMessage();
+        decoded.parse(message.encode(MAX_BUF_SIZE));
+
+        Assert.assertEquals(Integer.valueOf(1), decoded.ofChannel(1).getValue());
+        Assert.assertEquals(Long.valueOf(4000000000L), decoded.ofChannel(2).getValue());
+        Assert.assertArrayEquals(new Integer[] { 1, 2, 3 }, decoded.ofChannel(3).getValues());
+        Assert.assertEquals(Double.valueOf(19.5), decoded.ofChannel(4).getValue());
+    }
+
+    /**
+     * Verifies that a visitor receives the items while parsing, without the items
+     * being added to the message.
+     * 
+     * @throws CayenneException in case of a parsing exception
+     */
+    @Test
+    public void testVisitor() throws CayenneException {
+        byte[] data = { 0x01, 0x67, (byte) 0xFF, (byte) 0xD7, 0x06, 0x71, 0x04, (byte) 0xD2, (byte) 0xFB, 0x2E, 0x00,
+                0x00 };
+        CayenneMessage message = new CayenneMessage();
+        List<String> visited = new ArrayList<>();
+        message.parse(ByteBuffer.wrap(data),
+                (channel, type, values) -> visited.add(channel + ":" + type + ":" + Arrays.toString(values)));
+
+        Assert.assertEquals(Arrays.asList("1:TEMPERATURE:[-4.1000000000000005]", "6:ACCELEROMETER:[1.234, -1.234, 0.0]"),
+                visited);
+        Assert.assertTrue(message.getItems().isEmpty());
+
+        // packed format numbers the channels
+        CayenneMessage packed = new CayenneMessage(ECayennePayloadFormat.PACKED_SENSOR_PAYLOAD);
+        List<Integer> channels = new ArrayList<>();
+        packed.parse(ByteBuffer.wrap(new byte[] { 0x67, 0x01, 0x10, 0x67, 0x00, (byte) 0xFF }),
+                (channel, type, values) -> channels.add(channel));
+        Assert.assertEquals(Arrays.asList(0, 1), channels);
+    }
+
+    /**
+     * Verifies that a truncated item is reported by the visitor parser.
+     * 
+     * @throws CayenneException in case of a parsing exception
+     */
+    @Test(expected = CayenneException.class)
+    public void testVisitorTruncated() throws CayenneException {
+        CayenneMessage message = new CayenneMessage();
+        message.parse(ByteBuffer.wrap(new byte[] { 0x01, 0x67, 0x01 }), (channel, type, values) -> {
+        });
+    }
+
+    /**
+     * Verifies decoding of some of the LPP v2 types.
+     * 
+     * @throws CayenneException in case of a parsing exception
+     */
+    @Test
+    public void testLppV2Types() throws CayenneException {
+        byte[] data = { 1, 116, 0x01, (byte) 0x87, 2, 121, (byte) 0xFF, (byte) 0x9C, 3, (byte) 133, (byte) 0x80, 0x00,
+                0x00, 0x01, 4, (byte) 135, (byte) 0xFF, 0x20, 0x00, 5, (byte) 142, 1, 6, (byte) 129, 0x04,
+                (byte) 0xD2 };
+        CayenneMessage message = new CayenneMessage();
+        message.parse(data);
+
+        Assert.assertArrayEquals(new String[] { "3.91" }, message.ofType(ECayenneItem.VOLTAGE).format());
+        Assert.assertArrayEquals(new String[] { "-100" }, message.ofType(ECayenneItem.ALTITUDE).format());
+        Assert.assertArrayEquals(new String[] { "2147483649" }, message.ofType(ECayenneItem.UNIX_TIME).format());
+        Assert.assertArrayEquals(new String[] { "255", "32", "0" }, message.ofType(ECayenneItem.COLOUR).format());
+        Assert.assertArrayEquals(new String[] { "1" }, message.ofType(ECayenneItem.SWITCH).format());
+        Assert.assertArrayEquals(new String[] { "12.34" }, message.ofType(ECayenneItem.SPEED).format());
+        Assert.assertArrayEquals(data, message.encode(MAX_BUF_SIZE));
+    }
+
+    /**
+     * Verifies that an unknown type with a declared length is skipped.
+     * 
+     * @throws CayenneException in case of a parsing exception
+     */
+    @Test
+    public void testSkipDeclaredType() throws CayenneException {
+        byte[] data = { 1, (byte) 200, 0x12, 0x34, 2, 0x67, 0x01, 0x10 };
+        CayenneMessage message = new CayenneMessage();
+        message.declareLength(200, 2);
+        message.parse(data);
+
+        Assert.assertEquals(1, message.getItems().size());
+        Assert.assertArrayEquals(new String[] { "27.2" }, message.ofChannel(2).format());
+    }
+
+    /**
+     * Verifies that a visitor can skip the rest of the data after an unknown type.
+     * 
+     * @throws CayenneException in case of a parsing exception
+     */
+    @Test
+    public void testSkipUnknownType() throws CayenneException {
+        byte[] data = { 2, 0x67, 0x01, 0x10, 1, (byte) 200, 0x12, 0x34, 3, 0x67, 0x01, 0x10 };
+        List<Integer> channels = new ArrayList<>();
+        int[] skipped = new int[1];
+        ByteBuffer bb = ByteBuffer.wrap(data);
+        new CayenneMessage().parse(bb, new ICayenneVisitor() {
+            @Override
+            public void onItem(int channel, ECayenneItem type, double[] values) {
+                channels.add(channel);
+            }
+
+            @Override
+            public boolean onUnknownType(int channel, int type, int remaining) {
+                skipped[0] = remaining;
+                return true;
+            }
+        });
+
+        Assert.assertEquals(Arrays.asList(2), channels);
+        Assert.assertEquals(6, skipped[0]);
+        Assert.assertFalse(bb.hasRemaining());
+    }
+
+    /**
+     * Verifies that a length cannot be declared for a type code out of range.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDeclareLengthInvalidType() {
+        new CayenneMessage().declareLength(300, 2);
+    }
+
+    /**
+     * Verifies that a negative length cannot be declared.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDeclareLengthNegative() {
+        new CayenneMessage().declareLength(200, -1);
+    }
+
+    /**
+     * Verifies lookup of items by channel and by type.
+     * 
+     * @throws CayenneException in case of a parsing exception
+     */
+    @Test
+    public void testLookup() throws CayenneException {
+        byte[] data = { 0x03, 0x67, 0x01, 0x10, 0x05, 0x67, 0x00, (byte) 0xFF, (byte) 0xC8, 0x68, 0x64, 0x03, 0x68,
+                0x32 };
+        CayenneMessage message = new CayenneMessage();
+        message.parse(data);
+
+        // first item wins for duplicate channels
+        Assert.assertEquals(ECayenneItem.TEMPERATURE, message.ofChannel(3).getType());
+        Assert.assertEquals(ECayenneItem.HUMIDITY, message.ofChannel((byte) 0xC8).getType());
+        Assert.assertNull(message.ofChannel(0xC8));
+        Assert.assertNull(message.ofChannel(4));
+
+        Assert.assertEquals(3, message.ofType(ECayenneItem.TEMPERATURE).getChannel());
+        Assert.assertEquals(2, message.allOfType(ECayenneItem.TEMPERATURE).size());
+        Assert.assertEquals(5, message.allOfType(ECayenneItem.TEMPERATURE).get(1).getChannel());
+        Assert.assertEquals(2, message.allOfType(ECayenneItem.HUMIDITY).size());
+        Assert.assertTrue(message.allOfType(ECayenneItem.GPS_LOCATION).isEmpty());
+        Assert.assertNull(message.ofType(ECayenneItem.GPS_LOCATION));
+    }
+
 }
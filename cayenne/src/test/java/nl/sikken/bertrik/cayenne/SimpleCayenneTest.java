@@ -1,5 +1,8 @@
 package nl.sikken.bertrik.cayenne;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -63,4 +66,46 @@ public final class SimpleCayenneTest {
         cayenne.addAnalogInput(1, 3.90);
     }
 
+    /**
+     * Verifies encoding in place into a buffer.
+     * 
+     * @throws CayenneException in case of a problem encoding/decoding
+     */
+    @Test
+    public void testEncodeTo() throws CayenneException {
+        SimpleCayenne cayenne = new SimpleCayenne();
+        cayenne.addGps(1, 52.0, 4.0, -1.0);
+        cayenne.addTemperature(2, 19.0);
+        cayenne.addPresence(3, 42);
+        byte[] expected = cayenne.encode(500);
+        Assert.assertEquals(expected.length, cayenne.encodedSize());
+
+        ByteBuffer bb = ByteBuffer.allocate(100);
+        bb.position(3);
+        int length = cayenne.encodeTo(bb);
+        Assert.assertEquals(expected.length, length);
+        Assert.assertEquals(3 + length, bb.position());
+        Assert.assertArrayEquals(expected, Arrays.copyOfRange(bb.array(), 3, 3 + length));
+
+        // does not fit
+        try {
+            cayenne.encodeTo(ByteBuffer.allocate(length - 1));
+            Assert.fail("expected exception");
+        } catch (CayenneException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Verifies that channels which encode to the same byte are rejected.
+     * 
+     * @throws CayenneException in case of a problem encoding/decoding
+     */
+    @Test(expected = CayenneException.class)
+    public void testNonUniqueEncodedChannel() throws CayenneException {
+        SimpleCayenne cayenne = new SimpleCayenne();
+        cayenne.addTemperature(255, 19.0);
+        cayenne.addTemperature(-1, 19.0);
+    }
+
 }
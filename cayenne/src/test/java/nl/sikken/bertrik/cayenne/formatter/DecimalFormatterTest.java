@@ -0,0 +1,86 @@
+package nl.sikken.bertrik.cayenne.formatter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for DecimalFormatter.
+ */
+public final class DecimalFormatterTest {
+
+    /**
+     * Verifies some corner cases against String.format.
+     */
+    @Test
+    public void testCornerCases() {
+        double[] values = { 0.0, -0.0, -0.001, 0.5, 1.5, 2.5, -2.5, 1.005, 0.125, 1E-5, 123456789.125, 1E15, 1E20,
+                -1E300, Double.MIN_VALUE, Double.MAX_VALUE, Double.NaN, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY };
+        for (double value : values) {
+            for (int decimals = 0; decimals < 12; decimals++) {
+                assertSameAsStringFormat(value, decimals);
+            }
+        }
+    }
+
+    /**
+     * Verifies for random values that the output is the same as String.format,
+     * for values as produced by the cayenne formatters (a raw integer times the
+     * scale) and for arbitrary doubles.
+     */
+    @Test
+    public void testRandomSameAsStringFormat() {
+        Random random = new Random(1234);
+        double[] scales = { 1.0, 0.5, 0.1, 0.01, 0.001, 1E-4 };
+        for (int i = 0; i < 200000; i++) {
+            double value;
+            int decimals;
+            switch (i % 4) {
+            case 0:
+                // cayenne value, formatted with the decimals of its scale
+                int scaleIndex = random.nextInt(scales.length);
+                value = scales[scaleIndex] * (random.nextInt(1 << 24) - (1 << 23));
+                decimals = (scaleIndex == 0) ? 0 : Math.max(scaleIndex - 1, 1);
+                break;
+            case 1:
+                // cayenne value with more decimals than needed
+                value = 0.01 * (random.nextInt(65536) - 32768);
+                decimals = random.nextInt(8);
+                break;
+            case 2:
+                // exactly halfway in decimal
+                decimals = random.nextInt(7);
+                value = (random.nextInt(2000000) - 1000000 + 0.5) / Math.pow(10, decimals);
+                break;
+            default:
+                value = Double.longBitsToDouble(random.nextLong());
+                decimals = random.nextInt(10);
+                break;
+            }
+            assertSameAsStringFormat(value, decimals);
+        }
+    }
+
+    /**
+     * Verifies formatting into an array at an offset.
+     */
+    @Test
+    public void testFormatIntoArray() {
+        DecimalFormatter formatter = DecimalFormatter.of(2);
+        byte[] buffer = new byte[2 + formatter.getMaxLength(-12.345)];
+        buffer[0] = 'x';
+        int end = formatter.format(-12.345, buffer, 1);
+        Assert.assertEquals("x-12.35", new String(buffer, 0, end, StandardCharsets.US_ASCII));
+    }
+
+    private void assertSameAsStringFormat(double value, int decimals) {
+        String expected = String.format(Locale.ROOT, "%." + decimals + "f", value);
+        Assert.assertEquals("value " + value + ", decimals " + decimals, expected,
+                DecimalFormatter.of(decimals).format(value));
+    }
+
+}
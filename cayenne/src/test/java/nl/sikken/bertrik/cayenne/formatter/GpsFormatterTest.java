@@ -24,4 +24,23 @@ public final class GpsFormatterTest {
         Assert.assertEquals(coords[2], parsed[2], 0.01);
     }
 
+    @Test
+    public void testEncodeDecodePrimitive() {
+        GpsFormatter formatter = new GpsFormatter();
+        double[] coords = new double[] { 0.0, 52.0, 4.1, -3.5 };
+
+        // encode
+        ByteBuffer bb = ByteBuffer.allocate(100);
+        formatter.encode(bb, coords, 1);
+
+        // decode
+        bb.flip();
+        double[] parsed = new double[4];
+        formatter.parse(bb, parsed, 1);
+        Assert.assertEquals(coords[1], parsed[1], 0.01);
+        Assert.assertEquals(coords[2], parsed[2], 0.01);
+        Assert.assertEquals(coords[3], parsed[3], 0.01);
+        Assert.assertArrayEquals(new String[] { "52.0000", "4.1000", "-3.50" }, formatter.format(parsed, 1));
+    }
+
 }
@@ -0,0 +1,70 @@
+package nl.sikken.bertrik.hab;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import nl.sikken.bertrik.cayenne.CayenneException;
+import nl.sikken.bertrik.cayenne.CayenneItem;
+import nl.sikken.bertrik.cayenne.CayenneMessage;
+import nl.sikken.bertrik.cayenne.SimpleCayenne;
+
+/**
+ * Compares streaming cayenne values into a sentence through a visitor against
+ * building the list of items and formatting each item into strings (the
+ * previous implementation). Run with the gc profiler to see the allocation per
+ * message (gc.alloc.rate.norm).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CayenneDecodeBenchmark {
+
+    private Instant time;
+    private byte[] payload;
+
+    @Setup
+    public void setup() throws CayenneException {
+        time = Instant.now();
+        SimpleCayenne cayenne = new SimpleCayenne();
+        cayenne.addGps(1, 52.0162, 4.4753, 123.45);
+        cayenne.addTemperature(2, 21.5);
+        cayenne.addAnalogInput(3, 3.91);
+        cayenne.addPresence(4, 7);
+        cayenne.addAccelerometer(5, 0.012, -0.034, 0.981);
+        payload = cayenne.encode(100);
+    }
+
+    @Benchmark
+    public String visitor() throws CayenneException {
+        Sentence sentence = new Sentence("NOTAFLIGHT", 1234, time);
+        new CayenneMessage().parse(ByteBuffer.wrap(payload), (channel, type, values) -> {
+            for (int i = 0; i < values.length; i++) {
+                sentence.addField(values[i], type.getDecimals(i));
+            }
+        });
+        return sentence.format();
+    }
+
+    @Benchmark
+    public String itemList() throws CayenneException {
+        Sentence sentence = new Sentence("NOTAFLIGHT", 1234, time);
+        CayenneMessage cayenne = new CayenneMessage();
+        cayenne.parse(payload);
+        for (CayenneItem item : cayenne.getItems()) {
+            for (String s : item.format()) {
+                sentence.addField(s);
+            }
+        }
+        return sentence.format();
+    }
+
+}
@@ -0,0 +1,69 @@
+package nl.sikken.bertrik.hab;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the slicing-by-8 CRC against the byte-at-a-time implementation (the
+ * previous implementation), for a typical sentence length and a larger block.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CrcBenchmark {
+
+    @Param({ "64", "1024" })
+    private int size;
+
+    private final CrcCcitt16 crc16 = new CrcCcitt16();
+    private final int[] table = new int[256];
+
+    private byte[] data;
+    private ByteBuffer direct;
+
+    @Setup
+    public void setup() {
+        data = new byte[size];
+        new Random(1234).nextBytes(data);
+        direct = ByteBuffer.allocateDirect(size);
+        direct.put(data).flip();
+        for (int b = 0; b < 256; b++) {
+            int value = b << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                value = ((value & 0x8000) != 0) ? (value << 1) ^ 0x1021 : value << 1;
+            }
+            table[b] = value & 0xFFFF;
+        }
+    }
+
+    @Benchmark
+    public int bytewise() {
+        int crc = 0xFFFF;
+        for (byte b : data) {
+            int temp = (b ^ (crc >> 8)) & 0xff;
+            crc = table[temp] ^ (crc << 8);
+        }
+        return crc & 0xFFFF;
+    }
+
+    @Benchmark
+    public int slicing() {
+        return crc16.calculate(data, 0xFFFF);
+    }
+
+    @Benchmark
+    public int slicingDirect() {
+        return crc16.calculate(direct, 0xFFFF);
+    }
+
+}
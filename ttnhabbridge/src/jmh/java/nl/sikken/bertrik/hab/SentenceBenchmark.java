@@ -0,0 +1,95 @@
+package nl.sikken.bertrik.hab;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares writing a sentence with numeric fields through the sentence writer
+ * against formatting every field with String.format (the previous
+ * implementation). Run with the gc profiler to see the allocation per sentence
+ * (gc.alloc.rate.norm).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SentenceBenchmark {
+
+    private final CrcCcitt16 crc16 = new CrcCcitt16();
+    private final SentenceWriter writer = new SentenceWriter();
+
+    private Instant time;
+    private int counter;
+    private double latitude;
+    private double longitude;
+    private double altitude;
+    private double temperature;
+    private double voltage;
+
+    @Setup
+    public void setup() {
+        time = Instant.now();
+        counter = 1234;
+        latitude = 52.0162331;
+        longitude = 4.4753012;
+        altitude = 123.45;
+        temperature = 21.5;
+        voltage = 3.912;
+    }
+
+    @Benchmark
+    public String sentence() {
+        Sentence sentence = new Sentence("NOTAFLIGHT", counter, time);
+        sentence.addField(latitude, 6);
+        sentence.addField(longitude, 6);
+        sentence.addField(altitude, 1);
+        sentence.addField(temperature, 1);
+        sentence.addField(voltage, 3);
+        return sentence.format();
+    }
+
+    @Benchmark
+    public byte[] reusedWriter() {
+        return writer.begin("NOTAFLIGHT", counter, time).field(latitude, 6).field(longitude, 6).field(altitude, 1)
+                .field(temperature, 1).field(voltage, 3).toBytes();
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        List<String> fields = new ArrayList<>();
+        fields.add(String.format(Locale.ROOT, "%.6f", latitude));
+        fields.add(String.format(Locale.ROOT, "%.6f", longitude));
+        fields.add(String.format(Locale.ROOT, "%.1f", altitude));
+        fields.add(String.format(Locale.ROOT, "%.1f", temperature));
+        fields.add(String.format(Locale.ROOT, "%.3f", voltage));
+
+        LocalDateTime local = LocalDateTime.ofInstant(time, ZoneId.of("UTC"));
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm:ss", Locale.ROOT);
+        String timeString = local.format(formatter);
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%s,%d,%s", "NOTAFLIGHT", counter, timeString));
+        for (String s : fields) {
+            sb.append(',');
+            sb.append(s);
+        }
+        String basic = sb.toString();
+        byte[] bytes = basic.getBytes(StandardCharsets.US_ASCII);
+        int crcValue = crc16.calculate(bytes, 0xFFFF);
+        return String.format(Locale.ROOT, "$$%s*%04X\n", basic, crcValue);
+    }
+
+}
@@ -0,0 +1,106 @@
+package nl.sikken.bertrik.hab.habitat.docs;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import nl.sikken.bertrik.hab.habitat.HabReceiver;
+import nl.sikken.bertrik.hab.habitat.Location;
+
+/**
+ * Compares the streaming habitat documents against building them as a JSON tree
+ * (the previous implementation). Run with the gc profiler to see the allocation
+ * per upload (gc.alloc.rate.norm).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DocFormatBenchmark {
+
+    @Param({ "1", "5" })
+    private int receivers;
+
+    private Instant instant;
+    private byte[] raw;
+    private String[] callSigns;
+    private HabReceiver receiver;
+
+    @Setup
+    public void setup() {
+        instant = Instant.now();
+        raw = "$$NOTAFLIGHT,1234,12:34:56,52.01623,4.47530,123.4,21.5,3.91*1A2B\n".getBytes(StandardCharsets.US_ASCII);
+        callSigns = new String[receivers];
+        for (int i = 0; i < receivers; i++) {
+            callSigns[i] = "eui-00800000a000" + (1000 + i);
+        }
+        receiver = new HabReceiver(callSigns[0], new Location(52.0162, 4.4753, 12.0));
+    }
+
+    @Benchmark
+    public byte[] payloadTelemetryStreaming() {
+        PayloadTelemetryDoc doc = new PayloadTelemetryDoc(instant, raw);
+        for (String callSign : callSigns) {
+            doc.addCallSign(callSign);
+        }
+        return doc.toBytes();
+    }
+
+    @Benchmark
+    public byte[] payloadTelemetryTree() {
+        JsonNodeFactory factory = new JsonNodeFactory(false);
+        DateTimeFormatter dateFormat = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+        OffsetDateTime date = OffsetDateTime.ofInstant(instant, ZoneId.systemDefault());
+        ObjectNode dataNode = factory.objectNode();
+        dataNode.set("_raw", factory.binaryNode(raw.clone()));
+        ObjectNode receiversNode = factory.objectNode();
+        for (String callSign : callSigns) {
+            ObjectNode receiverNode = factory.objectNode();
+            receiverNode.set("time_created", factory.textNode(dateFormat.format(date)));
+            receiverNode.set("time_uploaded", factory.textNode(dateFormat.format(date)));
+            receiversNode.set(callSign, receiverNode);
+        }
+        ObjectNode topNode = factory.objectNode();
+        topNode.set("data", dataNode);
+        topNode.set("receivers", receiversNode);
+        return topNode.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] listenerTelemetryStreaming() {
+        return new ListenerTelemetryDoc(instant, receiver).toBytes();
+    }
+
+    @Benchmark
+    public byte[] listenerTelemetryTree() {
+        JsonNodeFactory factory = new JsonNodeFactory(false);
+        DateTimeFormatter dateFormat = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+        OffsetDateTime date = OffsetDateTime.ofInstant(instant, ZoneId.systemDefault());
+        ObjectNode dataNode = factory.objectNode();
+        dataNode.set("callsign", factory.textNode(receiver.getCallsign()));
+        dataNode.set("latitude", factory.numberNode(receiver.getLocation().getLat()));
+        dataNode.set("longitude", factory.numberNode(receiver.getLocation().getLon()));
+        dataNode.set("altitude", factory.numberNode(receiver.getLocation().getAlt()));
+        ObjectNode topNode = factory.objectNode();
+        topNode.set("type", factory.textNode("listener_telemetry"));
+        topNode.set("time_created", factory.textNode(dateFormat.format(date)));
+        topNode.set("time_uploaded", factory.textNode(dateFormat.format(date)));
+        topNode.set("data", dataNode);
+        return topNode.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,36 @@
+package nl.sikken.bertrik.hab.ttn;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares parsing TTN time stamps with the specialized parser against
+ * Instant.parse (the previous implementation).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimestampParserBenchmark {
+
+    @Param({ "2021-02-10T10:43:12.689616958Z", "2020-08-23T11:40:30.367695Z", "2021-02-10T10:43:12Z" })
+    public String text;
+
+    @Benchmark
+    public Instant timestampParser() {
+        return TimestampParser.parse(text);
+    }
+
+    @Benchmark
+    public Instant instantParse() {
+        return Instant.parse(text);
+    }
+
+}
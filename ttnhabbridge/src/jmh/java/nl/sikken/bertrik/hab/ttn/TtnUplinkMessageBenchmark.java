@@ -0,0 +1,64 @@
+package nl.sikken.bertrik.hab.ttn;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import nl.sikken.bertrik.hab.ttn.TtnUplinkMessage.GatewayInfo;
+
+/**
+ * Compares reading the payload and payload fields of an uplink through the
+ * read-only views against the defensive copies made by the previous
+ * implementation on every call. Run with the gc profiler to see the allocation
+ * per message (gc.alloc.rate.norm).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TtnUplinkMessageBenchmark {
+
+    private TtnUplinkMessage message;
+    private byte[] payloadRaw;
+    private Map<String, Object> payloadFields;
+
+    @Setup
+    public void setup() {
+        payloadRaw = new byte[51];
+        Arrays.fill(payloadRaw, (byte) 0x55);
+        payloadFields = new HashMap<>();
+        payloadFields.put("lat", 52.0182);
+        payloadFields.put("lon", 4.70844);
+        payloadFields.put("gpsalt", 1234.5);
+        payloadFields.put("temp", -12.5);
+        payloadFields.put("vcc", 3.9);
+        message = new TtnUplinkMessage(Instant.now(), "habhub", "mapper2", 4, 1, payloadRaw, false, payloadFields,
+                Arrays.asList(new GatewayInfo("eui-008000000000b8b6", 52.0182, 4.70844, 27)));
+    }
+
+    @Benchmark
+    public int views() {
+        ByteBuffer payload = message.getPayload();
+        Map<String, Object> fields = message.getPayloadFields();
+        return payload.get(payload.limit() - 1) + fields.size();
+    }
+
+    @Benchmark
+    public int copies() {
+        // what the getters did before: clone the payload and copy the map
+        byte[] payload = payloadRaw.clone();
+        Map<String, Object> fields = new HashMap<>(payloadFields);
+        return payload[payload.length - 1] + fields.size();
+    }
+
+}
@@ -0,0 +1,96 @@
+package nl.sikken.bertrik.hab.ttn;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Measures the number of MQTT uplink messages converted per second on one core,
+ * parsing the JSON straight from the MQTT bytes against decoding it into an
+ * ASCII string first and parsing that (the previous implementation). For TTNv3
+ * messages, the streaming parser is also compared against databind from bytes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(1)
+public class UplinkMessageReaderBenchmark {
+
+    private static final String V2_TOPIC = "habhub/devices/mapper2/up";
+    private static final byte[] V2_JSON = ("{\"app_id\":\"ttnmapper\",\"dev_id\":\"mapper2\","
+            + "\"hardware_serial\":\"0004A30B001ADBC5\",\"port\":1,\"counter\":4,"
+            + "\"payload_raw\":\"loeaWW4T2+8BHzYZzAIeAA8A/QUS\","
+            + "\"metadata\":{\"time\":\"2017-08-21T07:11:18.313946438Z\",\"frequency\":868.3,"
+            + "\"modulation\":\"LORA\",\"data_rate\":\"SF7BW125\",\"coding_rate\":\"4/5\","
+            + "\"gateways\":[{\"gtw_id\":\"eui-008000000000b8b6\",\"timestamp\":1409115451,"
+            + "\"time\":\"2017-08-21T07:11:18.338662Z\",\"channel\":1,\"rssi\":-114,\"snr\":-0.2,"
+            + "\"rf_chain\":1,\"latitude\":52.0182,\"longitude\":4.70844,\"altitude\":27}]}}")
+                    .getBytes(StandardCharsets.UTF_8);
+
+    private static final String V3_TOPIC = "v3/test2id/devices/v3demo1/up";
+    private static final byte[] V3_JSON = ("{\"end_device_ids\":{\"device_id\":\"v3demo1\","
+            + "\"application_ids\":{\"application_id\":\"test2id\"},\"dev_eui\":\"008000000000A0B6\","
+            + "\"join_eui\":\"0000000000000000\",\"dev_addr\":\"260B850F\"},"
+            + "\"correlation_ids\":[\"as:up:01EY5RKC5HCVMCVAHPN8EMZQQC\",\"gs:conn:01EY5NK2FWERHS4M75W8QSANK9\","
+            + "\"gs:up:host:01EY5NK2G2MCRVMKG9015JJ0GT\",\"gs:uplink:01EY5RKBZ1XJJA112CDY5BSQKQ\","
+            + "\"ns:uplink:01EY5RKBZ3YRCCCPRQCAY2YQ4Y\","
+            + "\"rpc:/ttn.lorawan.v3.GsNs/HandleUplink:01EY5RKBZ2DW9HCP0AZ6XQ1C4V\","
+            + "\"rpc:/ttn.lorawan.v3.NsAs/HandleUplink:01EY5RKC5GT79XR6EXRZ4HBYXK\"],"
+            + "\"received_at\":\"2021-02-10T10:43:12.689616958Z\",\"uplink_message\":{"
+            + "\"session_key_id\":\"AXeLWcyXpwXNMEKFxfTSqQ==\",\"f_port\":1,\"f_cnt\":84,"
+            + "\"frm_payload\":\"eyJ0IjoyNC40fQ==\",\"rx_metadata\":[{\"gateway_ids\":{"
+            + "\"gateway_id\":\"eui-024b08fefe040083\",\"eui\":\"E024B08FEFE04008\"},"
+            + "\"time\":\"2021-02-10T10:43:12.461088Z\",\"timestamp\":3157838364,\"rssi\":-113,"
+            + "\"channel_rssi\":-113,\"snr\":-3,\"location\":{\"latitude\":52.00996862975038,"
+            + "\"longitude\":4.716007411479951,\"source\":\"SOURCE_REGISTRY\"},"
+            + "\"uplink_token\":\"CiIKIAoUZXVpLTAyNGIwOGZlZmUwNDAwODMSCOAksI/v4EAIEJyU4+ELGgwIwPGOgQYQ97bR5QEg4PrV7vNb\","
+            + "\"channel_index\":5}],\"settings\":{\"data_rate\":{\"lora\":{\"bandwidth\":125000,"
+            + "\"spreading_factor\":7}},\"data_rate_index\":5,\"coding_rate\":\"4/5\","
+            + "\"frequency\":\"867500000\",\"timestamp\":3157838364,\"time\":\"2021-02-10T10:43:12.461088Z\"},"
+            + "\"received_at\":\"2021-02-10T10:43:12.483085362Z\",\"consumed_airtime\":\"0.061696s\"}}")
+                    .getBytes(StandardCharsets.UTF_8);
+
+    private final UplinkMessageReader reader = new UplinkMessageReader();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectReader v3Reader = mapper.readerFor(Ttnv3UplinkMessage.class);
+
+    @Benchmark
+    public TtnUplinkMessage v2Bytes() throws IOException {
+        return reader.read(V2_TOPIC, V2_JSON);
+    }
+
+    @Benchmark
+    public TtnUplinkMessage v2String() throws IOException {
+        String payload = new String(V2_JSON, StandardCharsets.US_ASCII);
+        return mapper.readValue(payload, Ttnv2UplinkMessage.class).toUplinkMessage();
+    }
+
+    @Benchmark
+    public TtnUplinkMessage v3Bytes() throws IOException {
+        return reader.read(V3_TOPIC, V3_JSON);
+    }
+
+    @Benchmark
+    public TtnUplinkMessage v3Databind() throws IOException {
+        Ttnv3UplinkMessage message = v3Reader.readValue(V3_JSON);
+        return message.toUplinkMessage();
+    }
+
+    @Benchmark
+    public TtnUplinkMessage v3String() throws IOException {
+        String payload = new String(V3_JSON, StandardCharsets.US_ASCII);
+        return mapper.readValue(payload, Ttnv3UplinkMessage.class).toUplinkMessage();
+    }
+
+}
@@ -18,6 +18,66 @@ public interface ITtnHabBridgeConfig {
      * @return timeout for communication with the habitat server
      */
     Duration getHabitatTimeout();
+
+    /**
+     * @return maximum number of concurrent requests towards the habitat server
+     */
+    int getHabitatMaxInFlight();
+
+    /**
+     * @return whether to upload all receivers of a sentence in one document
+     */
+    boolean isHabitatMergeReceivers();
+
+    /**
+     * @return time to collect receivers of the same sentence into one document, whether merging is enabled or not
+     */
+    Duration getHabitatCoalesceWindow();
+
+    /**
+     * @return directory of the upload outbox, empty for no outbox
+     */
+    String getHabitatOutboxDir();
+
+    /**
+     * @return maximum number of attempts of an upload
+     */
+    int getHabitatRetryAttempts();
+
+    /**
+     * @return delay before the first retry of an upload
+     */
+    Duration getHabitatRetryDelay();
+
+    /**
+     * @return maximum delay between retries of an upload
+     */
+    Duration getHabitatRetryMaxDelay();
+
+    /**
+     * @return number of consecutive failures after which uploads are held back
+     */
+    int getHabitatBreakerFailures();
+
+    /**
+     * @return time uploads are held back before trying habitat again
+     */
+    Duration getHabitatBreakerOpenTime();
+
+    /**
+     * @return number of UUIDs to fetch from habitat at once
+     */
+    int getHabitatUuidsBatch();
+
+    /**
+     * @return number of pooled UUIDs below which more are fetched
+     */
+    int getHabitatUuidsLowWater();
+
+    /**
+     * @return whether to generate UUIDs locally when the pool is empty
+     */
+    boolean isHabitatUuidsLocal();
     
     /**
      * @return the URL of the TTN MQTT server
@@ -44,9 +104,54 @@ public interface ITtnHabBridgeConfig {
      */
     Duration getTtnGwCacheExpiry();
     
+    /**
+     * @return comma separated list of device ids to accept, empty to accept all devices
+     */
+    String getTtnDevicesAllow();
+
+    /**
+     * @return comma separated list of device ids to ignore
+     */
+    String getTtnDevicesDeny();
+
+    /**
+     * @return whether to log the JSON of every received message
+     */
+    boolean isTtnLogPayload();
+
     /**
      * @return the payload encoding, can be "sodaq", "json", "cayenne"
      */
     String getTtnPayloadEncoding();
 
+    /**
+     * @return the payload encoding per device, application or port, overriding the default payload encoding
+     */
+    String getTtnPayloadRoutes();
+
+    /**
+     * @return the data length of cayenne types unknown to the bridge, as comma separated type:length pairs
+     */
+    String getCayenneLengths();
+
+    /**
+     * @return the maximum number of messages waiting in front of each pipeline stage
+     */
+    int getPipelineQueueSize();
+
+    /**
+     * @return the number of threads converting MQTT messages into uplink messages
+     */
+    int getPipelineParseWorkers();
+
+    /**
+     * @return the number of lanes for decoding and formatting, uplinks of one device always use the same lane
+     */
+    int getPipelineLanes();
+
+    /**
+     * @return the number of lanes scheduling habitat uploads, uplinks of one device always use the same lane
+     */
+    int getPipelineUploadWorkers();
+
 }
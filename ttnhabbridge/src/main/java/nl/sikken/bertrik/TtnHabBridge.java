@@ -4,9 +4,14 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.PropertyConfigurator;
 import org.eclipse.paho.client.mqttv3.MqttException;
@@ -18,13 +23,21 @@ import nl.sikken.bertrik.hab.EPayloadEncoding;
 import nl.sikken.bertrik.hab.ExpiringCache;
 import nl.sikken.bertrik.hab.PayloadDecoder;
 import nl.sikken.bertrik.hab.Sentence;
+import nl.sikken.bertrik.hab.decoder.CayenneDecoder;
+import nl.sikken.bertrik.hab.decoder.IPayloadDecoder;
+import nl.sikken.bertrik.hab.habitat.CircuitBreaker;
 import nl.sikken.bertrik.hab.habitat.HabReceiver;
 import nl.sikken.bertrik.hab.habitat.HabitatUploader;
 import nl.sikken.bertrik.hab.habitat.IHabitatRestApi;
 import nl.sikken.bertrik.hab.habitat.Location;
+import nl.sikken.bertrik.hab.habitat.RetryPolicy;
+import nl.sikken.bertrik.hab.habitat.UuidPool;
+import nl.sikken.bertrik.hab.habitat.outbox.HabitatOutbox;
+import nl.sikken.bertrik.hab.pipeline.KeyedExecutor;
 import nl.sikken.bertrik.hab.ttn.TtnListener;
 import nl.sikken.bertrik.hab.ttn.TtnUplinkMessage;
 import nl.sikken.bertrik.hab.ttn.TtnUplinkMessage.GatewayInfo;
+import nl.sikken.bertrik.hab.ttn.UplinkFilter;
 
 /**
  * Bridge between the-things-network and the habhub network.
@@ -34,11 +47,17 @@ public final class TtnHabBridge {
 
     private static final Logger LOG = LoggerFactory.getLogger(TtnHabBridge.class);
     private static final String CONFIG_FILE = "ttnhabbridge.properties";
+    private static final long STATS_INTERVAL_SEC = 60;
 
     private final TtnListener ttnListener;
+    private final HabitatOutbox outbox;
     private final HabitatUploader habUploader;
     private final PayloadDecoder decoder;
     private final ExpiringCache gwCache;
+    private final KeyedExecutor<TtnUplinkMessage> decodeStage;
+    private final KeyedExecutor<DecodedUplink> formatStage;
+    private final KeyedExecutor<FormattedUplink> uploadStage;
+    private final ScheduledExecutorService statsExecutor = Executors.newSingleThreadScheduledExecutor();
 
     /**
      * Main application entry point.
@@ -65,70 +84,157 @@ public final class TtnHabBridge {
      * @param config the application configuration
      */
     private TtnHabBridge(ITtnHabBridgeConfig config) {
+        int queueSize = config.getPipelineQueueSize();
+        UplinkFilter filter = UplinkFilter.parse(config.getTtnDevicesAllow(), config.getTtnDevicesDeny());
         this.ttnListener = new TtnListener(this::handleTTNMessage, config.getTtnMqttUrl(), config.getTtnStackVersion(),
-                config.getTtnAppId(), config.getTtnAppKey());
-        IHabitatRestApi restApi = HabitatUploader.newRestClient(config.getHabitatUrl(), config.getHabitatTimeout());
-        this.habUploader = new HabitatUploader(restApi);
-        this.decoder = new PayloadDecoder(EPayloadEncoding.parse(config.getTtnPayloadEncoding()));
+                config.getTtnAppId(), config.getTtnAppKey(), config.getPipelineParseWorkers(), queueSize,
+                config.isTtnLogPayload(), filter);
+        int maxInFlight = config.getHabitatMaxInFlight();
+        IHabitatRestApi restApi = HabitatUploader.newRestClient(config.getHabitatUrl(), config.getHabitatTimeout(),
+                maxInFlight);
+        String outboxDir = config.getHabitatOutboxDir().trim();
+        this.outbox = outboxDir.isEmpty() ? null : new HabitatOutbox(Paths.get(outboxDir));
+        RetryPolicy retryPolicy = new RetryPolicy(config.getHabitatRetryAttempts(), config.getHabitatRetryDelay(),
+                config.getHabitatRetryMaxDelay());
+        CircuitBreaker circuitBreaker = new CircuitBreaker("habitat", config.getHabitatBreakerFailures(),
+                config.getHabitatBreakerOpenTime());
+        UuidPool uuidPool = new UuidPool(restApi, config.getHabitatUuidsBatch(), config.getHabitatUuidsLowWater(),
+                config.isHabitatUuidsLocal());
+        this.habUploader = new HabitatUploader(restApi, maxInFlight, config.isHabitatMergeReceivers(),
+                config.getHabitatCoalesceWindow(), outbox, retryPolicy, circuitBreaker, uuidPool);
+        this.decoder = new PayloadDecoder(loadDecoders(config.getCayenneLengths()), config.getTtnPayloadEncoding(),
+                config.getTtnPayloadRoutes());
         this.gwCache = new ExpiringCache(config.getTtnGwCacheExpiry());
+        // all stages run in per-device lanes, to keep messages of one device in order
+        int lanes = config.getPipelineLanes();
+        this.decodeStage = new KeyedExecutor<>("decode", lanes, queueSize, this::decode);
+        this.formatStage = new KeyedExecutor<>("format", lanes, queueSize, this::format);
+        this.uploadStage = new KeyedExecutor<>("upload", config.getPipelineUploadWorkers(), queueSize, this::upload);
+    }
+
+    // the decoders found on the class path, with the cayenne decoder replaced by one with the declared type lengths
+    private static List<IPayloadDecoder> loadDecoders(String cayenneLengths) {
+        List<IPayloadDecoder> decoders = new ArrayList<>();
+        decoders.add(new CayenneDecoder(cayenneLengths));
+        for (IPayloadDecoder decoder : ServiceLoader.load(IPayloadDecoder.class)) {
+            if (!decoder.getName().equals(EPayloadEncoding.CAYENNE.getName())) {
+                decoders.add(decoder);
+            }
+        }
+        return decoders;
     }
 
     /**
      * Starts the application.
      * 
      * @throws MqttException in case of a problem starting MQTT client
+     * @throws IOException   in case of a problem opening the upload outbox
      */
-    private void start() throws MqttException {
+    private void start() throws MqttException, IOException {
         LOG.info("Starting TTN-HAB bridge application");
 
-        // start sub-modules
+        // start sub-modules, downstream first
         habUploader.start();
+        uploadStage.start();
+        formatStage.start();
+        decodeStage.start();
         ttnListener.start();
+        statsExecutor.scheduleAtFixedRate(this::logStatistics, STATS_INTERVAL_SEC, STATS_INTERVAL_SEC,
+                TimeUnit.SECONDS);
 
         LOG.info("Started TTN-HAB bridge application");
     }
 
     /**
-     * Handles an incoming TTN message
+     * Handles an incoming TTN message, by handing it over to the decode stage.
      * 
-     * @param textMessage the message contents
-     * @param now         message arrival time
+     * @param message the uplink message
      */
     private void handleTTNMessage(TtnUplinkMessage message) {
+        try {
+            decodeStage.submit(message.getDevId(), message);
+        } catch (InterruptedException e) {
+            LOG.warn("Interrupted while queueing message for decoding");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Decodes the payload of an uplink message into a sentence.
+     * 
+     * @param message the uplink message
+     * @throws InterruptedException if interrupted while queueing for the format
+     *                              stage
+     */
+    private void decode(TtnUplinkMessage message) throws InterruptedException {
         Instant now = Instant.now();
+        if (message.isRetry()) {
+            // skip "retry" messages, they contain duplicate data with a misleading time
+            // stamp
+            LOG.warn("Ignoring 'retry' message");
+            return;
+        }
         try {
-            // decode from JSON
-            if (message.isRetry()) {
-                // skip "retry" messages, they contain duplicate data with a misleading time
-                // stamp
-                LOG.warn("Ignoring 'retry' message");
-                return;
-            }
             Sentence sentence = decoder.decode(message);
-            String line = sentence.format();
-
-            // collect list of listeners
-            List<HabReceiver> receivers = new ArrayList<>();
-            for (GatewayInfo gw : message.getGateways()) {
-                String gwName = gw.getId();
-                Location gwLocation = gw.getLocation();
-                HabReceiver receiver = new HabReceiver(gwName, gwLocation);
-                receivers.add(receiver);
-
-                // send listener data only if it has a valid location and hasn't been sent
-                // recently
-                if (gwLocation.isValid() && gwCache.add(gwName, now)) {
-                    habUploader.scheduleListenerDataUpload(receiver, now);
-                }
-            }
-
-            // send payload telemetry data
-            habUploader.schedulePayloadTelemetryUpload(line, receivers, now);
+            formatStage.submit(message.getDevId(), new DecodedUplink(message, sentence, now));
         } catch (DecodeException e) {
             LOG.warn("Payload decoding exception: {}", e.getMessage());
-        } catch (Exception e) {
-            LOG.trace("Caught unhandled exception", e);
-            LOG.error("Caught unhandled exception:" + e.getMessage());
+        }
+    }
+
+    /**
+     * Formats a decoded sentence into its textual representation.
+     * 
+     * @param decoded the decoded uplink
+     * @throws InterruptedException if interrupted while queueing for the upload
+     *                              stage
+     */
+    private void format(DecodedUplink decoded) throws InterruptedException {
+        String line = decoded.sentence.format();
+        uploadStage.submit(decoded.message.getDevId(), new FormattedUplink(decoded.message, line, decoded.now));
+    }
+
+    /**
+     * Schedules the upload of the sentence and listener data to habitat.
+     * 
+     * @param formatted the formatted uplink
+     */
+    private void upload(FormattedUplink formatted) {
+        Instant now = formatted.now;
+
+        // collect list of listeners
+        List<HabReceiver> receivers = new ArrayList<>();
+        for (GatewayInfo gw : formatted.message.getGateways()) {
+            String gwName = gw.getId();
+            Location gwLocation = gw.getLocation();
+            HabReceiver receiver = new HabReceiver(gwName, gwLocation);
+            receivers.add(receiver);
+
+            // send listener data only if it has a valid location and hasn't been sent
+            // recently
+            if (gwLocation.isValid() && gwCache.add(gwName, now)) {
+                habUploader.scheduleListenerDataUpload(receiver, now);
+            }
+        }
+
+        // send payload telemetry data
+        habUploader.schedulePayloadTelemetryUpload(formatted.line, receivers, now);
+    }
+
+    /**
+     * Logs queue depth and backpressure statistics of all pipeline stages, and habitat upload statistics.
+     */
+    private void logStatistics() {
+        LOG.info("Pipeline: {}, {}, {}, {}, {}", ttnListener.getFilter(), ttnListener.getParseStage(), decodeStage,
+                formatStage, uploadStage);
+        LOG.info("Decoders: {}", decoder.getStats());
+        LOG.info("Habitat: in flight {}, sentences unique {}, merged {}, {}", habUploader.getInFlight(),
+                habUploader.getUniqueSentences(), habUploader.getMergedSentences(), habUploader.getEndpointStats());
+        LOG.info("Habitat: retries {}, deferred {}, given up {}, {}, {}", habUploader.getRetryCount(),
+                habUploader.getDeferCount(), habUploader.getGiveUpCount(), habUploader.getCircuitBreaker(),
+                habUploader.getUuidPool());
+        if (outbox != null) {
+            LOG.info("Habitat: {}", outbox);
         }
     }
 
@@ -139,8 +245,13 @@ public final class TtnHabBridge {
      */
     private void stop() {
         LOG.info("Stopping TTN HAB bridge application");
+        statsExecutor.shutdown();
         ttnListener.stop();
+        decodeStage.stop();
+        formatStage.stop();
+        uploadStage.stop();
         habUploader.stop();
+        logStatistics();
         LOG.info("Stopped TTN HAB bridge application");
     }
 
@@ -168,4 +279,35 @@ public final class TtnHabBridge {
         return config;
     }
 
+    /**
+     * Uplink message with its decoded sentence, passed from decode to format stage.
+     */
+    private static final class DecodedUplink {
+        private final TtnUplinkMessage message;
+        private final Sentence sentence;
+        private final Instant now;
+
+        private DecodedUplink(TtnUplinkMessage message, Sentence sentence, Instant now) {
+            this.message = message;
+            this.sentence = sentence;
+            this.now = now;
+        }
+    }
+
+    /**
+     * Uplink message with its formatted sentence, passed from format to upload
+     * stage.
+     */
+    private static final class FormattedUplink {
+        private final TtnUplinkMessage message;
+        private final String line;
+        private final Instant now;
+
+        private FormattedUplink(TtnUplinkMessage message, String line, Instant now) {
+            this.message = message;
+            this.line = line;
+            this.now = now;
+        }
+    }
+
 }
@@ -15,14 +15,45 @@ final class TtnHabBridgeConfig extends BaseConfig implements ITtnHabBridgeConfig
     private enum EConfigItem {
         HABITAT_URL("habitat.url", "http://habitat.habhub.org", "URL of the habitat server"),
         HABITAT_TIMEOUT_MS("habitat.timeout", "5000", "Timeout in milliseconds"),
+        HABITAT_MAX_IN_FLIGHT("habitat.uploads.max", "4", "Maximum number of concurrent requests to habitat"),
+        HABITAT_MERGE_RECEIVERS("habitat.merge.receivers", "false",
+                "Upload all receivers of a sentence in one document (true) or one document per receiver (false)"),
+        HABITAT_COALESCE_WINDOW_MS("habitat.coalesce.window", "0",
+                "Time in milliseconds to collect receivers of the same sentence into one upload, 0 to disable"),
+        HABITAT_OUTBOX_DIR("habitat.outbox.dir", "",
+                "Directory to store uploads in until habitat accepts them, empty to keep them in memory only"),
+        HABITAT_RETRY_ATTEMPTS("habitat.retry.attempts", "6", "Maximum number of attempts of an upload"),
+        HABITAT_RETRY_DELAY_MS("habitat.retry.delay", "1000", "Delay in milliseconds before the first retry"),
+        HABITAT_RETRY_MAX_DELAY_MS("habitat.retry.maxdelay", "60000", "Maximum delay in milliseconds between retries"),
+        HABITAT_BREAKER_FAILURES("habitat.breaker.failures", "5",
+                "Number of consecutive failures after which uploads are held back"),
+        HABITAT_BREAKER_OPEN_MS("habitat.breaker.open", "30000",
+                "Time in milliseconds uploads are held back before trying habitat again"),
+        HABITAT_UUIDS_BATCH("habitat.uuids.batch", "100", "Number of UUIDs to fetch from habitat at once"),
+        HABITAT_UUIDS_LOW_WATER("habitat.uuids.lowwater", "20", "Number of pooled UUIDs below which more are fetched"),
+        HABITAT_UUIDS_LOCAL("habitat.uuids.local", "true", "Generate UUIDs locally when the pool is empty"),
 
         TTN_MQTT_URL("ttn.mqtt.url", "tcp://eu.thethings.network", "URL of the TTN MQTT server"),
         TTN_VERSION("ttn.version", "V2", "TTN stack version, V2 or V3"),
         TTN_APP_ID("ttn.app.id", "habhub", "TTN Application Id (e.g. habhub, ttnmapper, etc.)"),
         TTN_APP_KEY("ttn.app.key", "ttn-account-v2.Sh49WL90oQz-ZuxoDrS6yKuACL_jtAA0agdDfO_eVj4", "TTN Application key"),
         TTN_GW_CACHE_EXPIRY_SEC("ttn.gwcache.expiry", "600", "Gateway cache expiration time (seconds)"),
+        TTN_DEVICES_ALLOW("ttn.devices.allow", "", "Comma separated list of device ids to accept, empty to accept all"),
+        TTN_DEVICES_DENY("ttn.devices.deny", "", "Comma separated list of device ids to ignore"),
+        TTN_LOG_PAYLOAD("ttn.log.payload", "false", "Log the JSON of every received message (true) or not (false)"),
         TTN_PAYLOAD_ENCODING("ttn.payload.encoding", "cayenne",
-                "Payload format, allowed values: 'sodaqone','json','cayenne','custom_format_icss'"),
+                "Payload format, allowed values: 'sodaqone','json','cayenne','custom_format_icss' or a decoder plugin"),
+        TTN_PAYLOAD_ROUTES("ttn.payload.routes", "",
+                "Payload format per device, application or port, e.g. 'dev:icss-*=custom_format_icss,port:1=sodaqone'"),
+
+        CAYENNE_LENGTHS("cayenne.lengths", "",
+                "Data length of cayenne types unknown to the bridge, e.g. '200:2,201:4', items of these types are skipped"),
+
+        PIPELINE_QUEUE_SIZE("pipeline.queue.size", "100", "Maximum number of messages waiting in front of each stage"),
+        PIPELINE_PARSE_WORKERS("pipeline.workers.parse", "1", "Number of threads converting MQTT messages"),
+        PIPELINE_LANES("pipeline.lanes", "4", "Number of per-device lanes for decoding and formatting"),
+        PIPELINE_UPLOAD_WORKERS("pipeline.workers.upload", "1",
+                "Number of per-device lanes scheduling habitat uploads"),
         ;
         
         private final String key;
@@ -57,6 +88,66 @@ final class TtnHabBridgeConfig extends BaseConfig implements ITtnHabBridgeConfig
         return get(EConfigItem.HABITAT_URL.key);
     }
 
+    @Override
+    public int getHabitatMaxInFlight() {
+        return Integer.parseInt(get(EConfigItem.HABITAT_MAX_IN_FLIGHT.key));
+    }
+
+    @Override
+    public boolean isHabitatMergeReceivers() {
+        return Boolean.parseBoolean(get(EConfigItem.HABITAT_MERGE_RECEIVERS.key));
+    }
+
+    @Override
+    public Duration getHabitatCoalesceWindow() {
+        return Duration.ofMillis(Integer.parseInt(get(EConfigItem.HABITAT_COALESCE_WINDOW_MS.key)));
+    }
+
+    @Override
+    public String getHabitatOutboxDir() {
+        return get(EConfigItem.HABITAT_OUTBOX_DIR.key);
+    }
+
+    @Override
+    public int getHabitatRetryAttempts() {
+        return Integer.parseInt(get(EConfigItem.HABITAT_RETRY_ATTEMPTS.key));
+    }
+
+    @Override
+    public Duration getHabitatRetryDelay() {
+        return Duration.ofMillis(Integer.parseInt(get(EConfigItem.HABITAT_RETRY_DELAY_MS.key)));
+    }
+
+    @Override
+    public Duration getHabitatRetryMaxDelay() {
+        return Duration.ofMillis(Integer.parseInt(get(EConfigItem.HABITAT_RETRY_MAX_DELAY_MS.key)));
+    }
+
+    @Override
+    public int getHabitatBreakerFailures() {
+        return Integer.parseInt(get(EConfigItem.HABITAT_BREAKER_FAILURES.key));
+    }
+
+    @Override
+    public Duration getHabitatBreakerOpenTime() {
+        return Duration.ofMillis(Integer.parseInt(get(EConfigItem.HABITAT_BREAKER_OPEN_MS.key)));
+    }
+
+    @Override
+    public int getHabitatUuidsBatch() {
+        return Integer.parseInt(get(EConfigItem.HABITAT_UUIDS_BATCH.key));
+    }
+
+    @Override
+    public int getHabitatUuidsLowWater() {
+        return Integer.parseInt(get(EConfigItem.HABITAT_UUIDS_LOW_WATER.key));
+    }
+
+    @Override
+    public boolean isHabitatUuidsLocal() {
+        return Boolean.parseBoolean(get(EConfigItem.HABITAT_UUIDS_LOCAL.key));
+    }
+
     @Override
     public String getTtnMqttUrl() {
         return get(EConfigItem.TTN_MQTT_URL.key);
@@ -82,9 +173,54 @@ final class TtnHabBridgeConfig extends BaseConfig implements ITtnHabBridgeConfig
         return Duration.ofSeconds(Integer.parseInt(get(EConfigItem.TTN_GW_CACHE_EXPIRY_SEC.key)));
     }
 
+    @Override
+    public String getTtnDevicesAllow() {
+        return get(EConfigItem.TTN_DEVICES_ALLOW.key);
+    }
+
+    @Override
+    public String getTtnDevicesDeny() {
+        return get(EConfigItem.TTN_DEVICES_DENY.key);
+    }
+
+    @Override
+    public boolean isTtnLogPayload() {
+        return Boolean.parseBoolean(get(EConfigItem.TTN_LOG_PAYLOAD.key));
+    }
+
     @Override
     public String getTtnPayloadEncoding() {
         return get(EConfigItem.TTN_PAYLOAD_ENCODING.key);
     }
-    
+
+    @Override
+    public String getTtnPayloadRoutes() {
+        return get(EConfigItem.TTN_PAYLOAD_ROUTES.key);
+    }
+
+    @Override
+    public String getCayenneLengths() {
+        return get(EConfigItem.CAYENNE_LENGTHS.key);
+    }
+
+    @Override
+    public int getPipelineQueueSize() {
+        return Integer.parseInt(get(EConfigItem.PIPELINE_QUEUE_SIZE.key));
+    }
+
+    @Override
+    public int getPipelineParseWorkers() {
+        return Integer.parseInt(get(EConfigItem.PIPELINE_PARSE_WORKERS.key));
+    }
+
+    @Override
+    public int getPipelineLanes() {
+        return Integer.parseInt(get(EConfigItem.PIPELINE_LANES.key));
+    }
+
+    @Override
+    public int getPipelineUploadWorkers() {
+        return Integer.parseInt(get(EConfigItem.PIPELINE_UPLOAD_WORKERS.key));
+    }
+
 }
@@ -5,7 +5,8 @@ import java.util.Map;
 import java.util.stream.Stream;
 
 /**
- * Enumeration of possible payload encodings.
+ * Enumeration of the built-in payload encodings, more can be added as
+ * {@link nl.sikken.bertrik.hab.decoder.IPayloadDecoder} services.
  */
 public enum EPayloadEncoding {
     
@@ -73,10 +73,21 @@ public final class ICSSPayload {
      * @throws BufferUnderflowException in case of a buffer underflow
      */
     public static ICSSPayload parse(byte[] raw, int current_time) throws BufferUnderflowException {
-    	int payload_size = raw.length;
+        return parse(ByteBuffer.wrap(raw), current_time);
+    }
+
+    /**
+     * Parses the remaining bytes of a buffer into a ICSS custom payload object.
+     * 
+     * @param buffer the buffer, its byte order is changed to little endian
+     * @return a parsed object
+     * @throws BufferUnderflowException in case of a buffer underflow
+     */
+    public static ICSSPayload parse(ByteBuffer buffer, int current_time) throws BufferUnderflowException {
+    	int payload_size = buffer.remaining();
     	int n_past_positions = (payload_size - current_data_size)/past_data_size;
     	
-        ByteBuffer bb = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer bb = buffer.order(ByteOrder.LITTLE_ENDIAN);
         byte byte0  = bb.get();
         byte byte1  = bb.get();
         byte byte2  = bb.get();
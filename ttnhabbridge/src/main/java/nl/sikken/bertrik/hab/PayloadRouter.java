@@ -0,0 +1,195 @@
+package nl.sikken.bertrik.hab;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import nl.sikken.bertrik.hab.ttn.TtnUplinkMessage;
+
+/**
+ * Picks the payload encoding of an uplink, based on its device id, application
+ * id or port, and resolves it to e.g. the decoder of that encoding.
+ *
+ * Routes are given as a comma separated list of "selector=encoding" rules, for
+ * example "dev:mapper2=sodaqone,dev:icss-*=custom_format_icss,app:habhub=json,port:3=cayenne".
+ * A selector is one of
+ * <ul>
+ * <li>"dev:id" or "dev:prefix*", matching the device id</li>
+ * <li>"app:id" or "app:prefix*", matching the application id</li>
+ * <li>"port:n", matching the LoRaWAN port</li>
+ * </ul>
+ * The most specific rule wins: a device rule before an application rule before
+ * a port rule, an exact match before a prefix match, and a longer prefix before
+ * a shorter one. Uplinks not matching any rule use the default encoding.
+ *
+ * The rules are compiled into hash maps, prefix tries and a port table once, so
+ * routing an uplink does not depend on the number of rules.
+ *
+ * @param <T> the type routed to, e.g. the payload encoding or its decoder
+ */
+public final class PayloadRouter<T> {
+
+    private static final String DEVICE = "dev:";
+    private static final String APPLICATION = "app:";
+    private static final String PORT = "port:";
+    private static final int MAX_PORT = 255;
+
+    private final T defaultValue;
+    private final Map<String, T> devices = new HashMap<>();
+    private final PrefixTrie<T> devicePrefixes = new PrefixTrie<>();
+    private final Map<String, T> applications = new HashMap<>();
+    private final PrefixTrie<T> applicationPrefixes = new PrefixTrie<>();
+    private final Object[] ports = new Object[MAX_PORT + 1];
+
+    /**
+     * Constructor for a router without rules, always using the default.
+     *
+     * @param defaultValue the value for uplinks not matching any rule
+     */
+    public PayloadRouter(T defaultValue) {
+        this.defaultValue = Objects.requireNonNull(defaultValue);
+    }
+
+    /**
+     * Compiles a set of routing rules.
+     *
+     * @param <T>          the type routed to
+     * @param rules        the comma separated rules, can be empty
+     * @param defaultValue the value for uplinks not matching any rule
+     * @param lookup       resolves the encoding name of a rule, returns null for
+     *                     an unknown name
+     * @return the router
+     * @throws IllegalArgumentException in case of an invalid rule
+     */
+    public static <T> PayloadRouter<T> parse(String rules, T defaultValue, Function<String, T> lookup) {
+        PayloadRouter<T> router = new PayloadRouter<>(defaultValue);
+        for (String rule : rules.split(",")) {
+            String trimmed = rule.trim();
+            if (!trimmed.isEmpty()) {
+                router.addRule(trimmed, lookup);
+            }
+        }
+        return router;
+    }
+
+    private void addRule(String rule, Function<String, T> lookup) {
+        int eq = rule.lastIndexOf('=');
+        if (eq < 0) {
+            throw new IllegalArgumentException("Missing encoding in route '" + rule + "'");
+        }
+        String selector = rule.substring(0, eq).trim();
+        String name = rule.substring(eq + 1).trim();
+        T encoding = lookup.apply(name);
+        if (encoding == null) {
+            throw new IllegalArgumentException("Unknown encoding '" + name + "' in route '" + rule + "'");
+        }
+
+        if (selector.startsWith(DEVICE)) {
+            addPattern(selector.substring(DEVICE.length()), encoding, devices, devicePrefixes);
+        } else if (selector.startsWith(APPLICATION)) {
+            addPattern(selector.substring(APPLICATION.length()), encoding, applications, applicationPrefixes);
+        } else if (selector.startsWith(PORT)) {
+            int port;
+            try {
+                port = Integer.parseInt(selector.substring(PORT.length()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid port in route '" + rule + "'", e);
+            }
+            if ((port < 0) || (port > MAX_PORT)) {
+                throw new IllegalArgumentException("Port out of range in route '" + rule + "'");
+            }
+            ports[port] = encoding;
+        } else {
+            throw new IllegalArgumentException("Unknown selector in route '" + rule + "'");
+        }
+    }
+
+    private static <T> void addPattern(String pattern, T encoding, Map<String, T> exact, PrefixTrie<T> prefixes) {
+        if (pattern.endsWith("*")) {
+            prefixes.put(pattern.substring(0, pattern.length() - 1), encoding);
+        } else {
+            exact.put(pattern, encoding);
+        }
+    }
+
+    /**
+     * Finds the encoding of an uplink.
+     *
+     * @param message the uplink
+     * @return the value for the encoding
+     */
+    public T route(TtnUplinkMessage message) {
+        return route(message.getAppId(), message.getDevId(), message.getPort());
+    }
+
+    /**
+     * Finds the encoding of an uplink.
+     *
+     * @param appId the application id, can be null
+     * @param devId the device id, can be null
+     * @param port  the port
+     * @return the value for the encoding
+     */
+    @SuppressWarnings("unchecked")
+    public T route(String appId, String devId, int port) {
+        T encoding = find(devId, devices, devicePrefixes);
+        if (encoding == null) {
+            encoding = find(appId, applications, applicationPrefixes);
+        }
+        if ((encoding == null) && (port >= 0) && (port <= MAX_PORT)) {
+            encoding = (T) ports[port];
+        }
+        return (encoding != null) ? encoding : defaultValue;
+    }
+
+    private static <T> T find(String id, Map<String, T> exact, PrefixTrie<T> prefixes) {
+        if (id == null) {
+            return null;
+        }
+        T encoding = exact.get(id);
+        return (encoding != null) ? encoding : prefixes.longestMatch(id);
+    }
+
+    public T getDefault() {
+        return defaultValue;
+    }
+
+    /**
+     * Trie of prefixes, finding the value of the longest prefix of a string in
+     * one pass over the string.
+     */
+    private static final class PrefixTrie<T> {
+
+        private final Node<T> root = new Node<>();
+
+        void put(String prefix, T value) {
+            Node<T> node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Node<>());
+            }
+            node.value = value;
+        }
+
+        T longestMatch(String s) {
+            Node<T> node = root;
+            T match = node.value;
+            for (int i = 0; (i < s.length()) && !node.children.isEmpty(); i++) {
+                node = node.children.get(s.charAt(i));
+                if (node == null) {
+                    break;
+                }
+                if (node.value != null) {
+                    match = node.value;
+                }
+            }
+            return match;
+        }
+
+        private static final class Node<T> {
+            private final Map<Character, Node<T>> children = new HashMap<>();
+            private T value;
+        }
+    }
+
+}
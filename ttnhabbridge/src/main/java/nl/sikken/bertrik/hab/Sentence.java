@@ -1,32 +1,36 @@
 package nl.sikken.bertrik.hab;
 
-import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Locale;
-
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.util.Arrays;
 
 /**
  * Representation of a HAB telemetry sentence.
+ *
+ * The fields are kept until the sentence is formatted, the formatting itself
+ * uses one {@link SentenceWriter} per thread.
  */
 public final class Sentence {
 
+    private static final ThreadLocal<SentenceWriter> WRITER = ThreadLocal.withInitial(SentenceWriter::new);
+    private static final int INITIAL_FIELDS = 8;
+
+    // kind of an extra field, the number of decimals for a fixed-point field
+    private static final int TEXT = -2;
+    private static final int INTEGER = -1;
+
     private final String callSign;
     private final int id;
     private final Instant time;
 
-    private final CrcCcitt16 crc16 = new CrcCcitt16();
-
-    private final List<String> fields = new ArrayList<>();
+    // per extra field its kind and its value, a fixed-point value as raw double bits
+    private int[] kinds = new int[INITIAL_FIELDS];
+    private long[] numbers = new long[INITIAL_FIELDS];
+    private String[] texts = new String[INITIAL_FIELDS];
+    private int count;
 
     /**
      * Constructor with the basic set of fields.
-     * 
+     *
      * @param callSign the call sign
      * @param id message sequence number
      * @param time the creation time
@@ -39,43 +43,76 @@ public final class Sentence {
 
     /**
      * Adds a pre-formatted extra field (optional).
-     * 
+     *
      * @param value the pre-formatted value
      */
     public void addField(String value) {
-        fields.add(value);
+        int index = add(TEXT);
+        texts[index] = value;
+    }
+
+    /**
+     * Adds an integer extra field (optional).
+     *
+     * @param value the value
+     */
+    public void addField(long value) {
+        int index = add(INTEGER);
+        numbers[index] = value;
+    }
+
+    /**
+     * Adds a fixed-point extra field (optional).
+     *
+     * @param value the value
+     * @param decimals the number of decimals
+     */
+    public void addField(double value, int decimals) {
+        if (decimals < 0) {
+            throw new IllegalArgumentException("Negative number of decimals: " + decimals);
+        }
+        int index = add(decimals);
+        numbers[index] = Double.doubleToRawLongBits(value);
+    }
+
+    private int add(int kind) {
+        if (count == kinds.length) {
+            int capacity = 2 * count;
+            kinds = Arrays.copyOf(kinds, capacity);
+            numbers = Arrays.copyOf(numbers, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+        }
+        kinds[count] = kind;
+        return count++;
     }
 
     /**
      * Formats the sentence into an ASCII string.
-     * 
+     *
      * @return a sentence formatted according to the basic UKHAS convention
      */
-    @SuppressFBWarnings(value = "VA_FORMAT_STRING_USES_NEWLINE", justification = "use \n as specified")
     public String format() {
-        // format time
-        LocalDateTime local = LocalDateTime.ofInstant(time, ZoneId.of("UTC"));
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm:ss", Locale.ROOT);
-        String timeString = local.format(formatter);
-
-        // format basic string
-        StringBuilder sb = new StringBuilder();
-        sb.append(String.format(Locale.ROOT, "%s,%d,%s", callSign, id, timeString));
-        for (String s : fields) {
-            sb.append(',');
-            sb.append(s);
+        SentenceWriter writer = WRITER.get();
+        writer.begin(callSign, id, time);
+        for (int i = 0; i < count; i++) {
+            switch (kinds[i]) {
+            case TEXT:
+                writer.field(texts[i]);
+                break;
+            case INTEGER:
+                writer.field(numbers[i]);
+                break;
+            default:
+                writer.field(Double.longBitsToDouble(numbers[i]), kinds[i]);
+                break;
+            }
         }
-        String basic = sb.toString();
-
-        // append header, checksum, etc
-        byte[] bytes = basic.getBytes(StandardCharsets.US_ASCII);
-        int crcValue = crc16.calculate(bytes, 0xFFFF);
-        return String.format(Locale.ROOT, "$$%s*%04X\n", basic, crcValue);
+        return writer.format();
     }
 
     @Override
     public String toString() {
         return format();
     }
-    
+
 }
@@ -0,0 +1,214 @@
+package nl.sikken.bertrik.hab;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+import nl.sikken.bertrik.cayenne.formatter.DecimalFormatter;
+
+/**
+ * Writes a UKHAS sentence directly into a reusable ASCII byte buffer.
+ *
+ * The checksum is updated while the fields are written, so formatting the
+ * complete sentence does not need another pass over the text. Numeric fields
+ * are written with the same result as {@code String.format(Locale.ROOT, ...)}
+ * ("%d" and "%.nf"), without creating intermediate strings.
+ *
+ * A writer is not thread-safe, but can be reused by calling
+ * {@link #begin(String, int, Instant)} for each new sentence.
+ */
+public final class SentenceWriter {
+
+    private static final int INITIAL_CAPACITY = 128;
+    private static final int SECONDS_PER_DAY = 86400;
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private final CrcCcitt16 crc16 = new CrcCcitt16();
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int length;
+    private int crcPos;
+
+    /**
+     * Starts a new sentence with the basic set of fields, discarding any previous
+     * contents.
+     *
+     * @param callSign the call sign
+     * @param id       message sequence number
+     * @param time     the creation time
+     * @return this writer
+     */
+    public SentenceWriter begin(String callSign, int id, Instant time) {
+        length = 0;
+        append((byte) '$');
+        append((byte) '$');
+        crc16.reset();
+        crcPos = length;
+
+        appendAscii(callSign);
+        append((byte) ',');
+        appendLong(id);
+        append((byte) ',');
+        int seconds = (int) Math.floorMod(time.getEpochSecond(), (long) SECONDS_PER_DAY);
+        appendTwoDigits(seconds / 3600);
+        append((byte) ':');
+        appendTwoDigits((seconds / 60) % 60);
+        append((byte) ':');
+        appendTwoDigits(seconds % 60);
+        updateCrc();
+        return this;
+    }
+
+    /**
+     * Adds a pre-formatted field.
+     *
+     * @param value the pre-formatted value
+     * @return this writer
+     */
+    public SentenceWriter field(String value) {
+        append((byte) ',');
+        appendAscii(value);
+        updateCrc();
+        return this;
+    }
+
+    /**
+     * Adds an integer field, formatted like "%d".
+     *
+     * @param value the value
+     * @return this writer
+     */
+    public SentenceWriter field(long value) {
+        append((byte) ',');
+        appendLong(value);
+        updateCrc();
+        return this;
+    }
+
+    /**
+     * Adds a fixed-point field, formatted like "%.nf" with n the number of
+     * decimals, see {@link DecimalFormatter}.
+     *
+     * @param value    the value
+     * @param decimals the number of decimals
+     * @return this writer
+     */
+    public SentenceWriter field(double value, int decimals) {
+        if (decimals < 0) {
+            throw new IllegalArgumentException("Negative number of decimals: " + decimals);
+        }
+        append((byte) ',');
+        DecimalFormatter formatter = DecimalFormatter.of(decimals);
+        ensureCapacity(length + formatter.getMaxLength(value));
+        length = formatter.format(value, buffer, length);
+        updateCrc();
+        return this;
+    }
+
+    /**
+     * @return the checksum of the sentence so far
+     */
+    public int getCrc() {
+        return (int) crc16.getValue();
+    }
+
+    /**
+     * @return the complete sentence, including checksum and newline
+     */
+    public String format() {
+        int end = writeTrailer();
+        return new String(buffer, 0, end, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @return the complete sentence as ASCII bytes, including checksum and newline
+     */
+    public byte[] toBytes() {
+        int end = writeTrailer();
+        return Arrays.copyOf(buffer, end);
+    }
+
+    // writes "*XXXX\n" after the current contents, without adding it to the sentence
+    private int writeTrailer() {
+        ensureCapacity(length + 6);
+        int crc = getCrc();
+        int pos = length;
+        buffer[pos++] = '*';
+        for (int shift = 12; shift >= 0; shift -= 4) {
+            buffer[pos++] = HEX_DIGITS[(crc >> shift) & 0xF];
+        }
+        buffer[pos++] = '\n';
+        return pos;
+    }
+
+    private void updateCrc() {
+        crc16.update(buffer, crcPos, length - crcPos);
+        crcPos = length;
+    }
+
+    private void append(byte b) {
+        ensureCapacity(length + 1);
+        buffer[length++] = b;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, 2 * buffer.length));
+        }
+    }
+
+    // same replacement of non-ASCII characters as String.getBytes(US_ASCII)
+    private void appendAscii(String s) {
+        int n = s.length();
+        ensureCapacity(length + n);
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer[length++] = (byte) c;
+            } else {
+                buffer[length++] = '?';
+                if (Character.isHighSurrogate(c) && (i + 1 < n) && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    i++;
+                }
+            }
+        }
+    }
+
+    private void appendTwoDigits(int value) {
+        append((byte) ('0' + value / 10));
+        append((byte) ('0' + value % 10));
+    }
+
+    private void appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            appendAscii(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            append((byte) '-');
+            value = -value;
+        }
+        appendDigits(value, 1);
+    }
+
+    // writes a non-negative value with at least the given number of digits
+    private void appendDigits(long value, int minDigits) {
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, minDigits);
+        ensureCapacity(length + digits);
+        for (int pos = length + digits - 1; pos >= length; pos--) {
+            buffer[pos] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+
+}
@@ -58,7 +58,18 @@ public final class SodaqOnePayload {
      * @throws BufferUnderflowException in case of a buffer underflow
      */
     public static SodaqOnePayload parse(byte[] raw) throws BufferUnderflowException {
-        ByteBuffer bb = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+        return parse(ByteBuffer.wrap(raw));
+    }
+
+    /**
+     * Parses a buffer into a Sodaq payload object, starting at its position.
+     * 
+     * @param buffer the buffer, its byte order is changed to little endian
+     * @return a parsed object
+     * @throws BufferUnderflowException in case of a buffer underflow
+     */
+    public static SodaqOnePayload parse(ByteBuffer buffer) throws BufferUnderflowException {
+        ByteBuffer bb = buffer.order(ByteOrder.LITTLE_ENDIAN);
         long time = bb.getInt() & 0xFFFFFFFFL;
         double voltage = 3.0 + 0.01 * (bb.get() & 0xFF);
         double boardTemp = bb.get();
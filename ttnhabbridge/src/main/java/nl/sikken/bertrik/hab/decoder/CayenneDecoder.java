@@ -0,0 +1,118 @@
+package nl.sikken.bertrik.hab.decoder;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import nl.sikken.bertrik.cayenne.CayenneException;
+import nl.sikken.bertrik.cayenne.CayenneMessage;
+import nl.sikken.bertrik.cayenne.ECayenneItem;
+import nl.sikken.bertrik.cayenne.ECayennePayloadFormat;
+import nl.sikken.bertrik.cayenne.ICayenneVisitor;
+import nl.sikken.bertrik.hab.DecodeException;
+import nl.sikken.bertrik.hab.EPayloadEncoding;
+import nl.sikken.bertrik.hab.Sentence;
+import nl.sikken.bertrik.hab.ttn.TtnUplinkMessage;
+
+/**
+ * Decodes a raw payload in cayenne LPP format, the port selects the cayenne
+ * payload format. Items of types that are unknown to the cayenne library can be
+ * skipped by declaring their length, see {@link #CayenneDecoder(String)}. Any
+ * other item of an unknown type ends the payload, the values before it are
+ * still decoded.
+ */
+public final class CayenneDecoder implements IPayloadDecoder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CayenneDecoder.class);
+
+    // data length per declared type code
+    private final Map<Integer, Integer> declaredLengths = new LinkedHashMap<>();
+
+    /**
+     * Constructor, without declared types.
+     */
+    public CayenneDecoder() {
+        this("");
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param lengths comma separated list of type:length pairs, declaring the data
+     *                length of types that are not known to the cayenne library,
+     *                e.g. "200:2,201:4"
+     */
+    public CayenneDecoder(String lengths) {
+        // a message to validate the declarations against
+        CayenneMessage validator = new CayenneMessage();
+        for (String declaration : lengths.split(",")) {
+            String trimmed = declaration.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int colon = trimmed.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Missing length in cayenne type '" + trimmed + "'");
+            }
+            int type;
+            int length;
+            try {
+                type = Integer.parseInt(trimmed.substring(0, colon).trim());
+                length = Integer.parseInt(trimmed.substring(colon + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cayenne type '" + trimmed + "'", e);
+            }
+            validator.declareLength(type, length);
+            declaredLengths.put(type, length);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return EPayloadEncoding.CAYENNE.getName();
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public Sentence decode(TtnUplinkMessage message) throws DecodeException {
+        LOG.info("Decoding 'cayenne' message...");
+
+        try {
+            Instant time = message.getTime();
+            Sentence sentence = new Sentence(message.getDevId(), message.getCounter(), time);
+            ECayennePayloadFormat cayenneFormat = ECayennePayloadFormat.fromPort(message.getPort());
+            CayenneMessage cayenne = new CayenneMessage(cayenneFormat);
+            declaredLengths.forEach(cayenne::declareLength);
+
+            // add all values, in the order they appear in the cayenne message
+            cayenne.parse(message.getPayload(), new ICayenneVisitor() {
+                @Override
+                public void onItem(int channel, ECayenneItem type, double[] values) {
+                    for (int i = 0; i < values.length; i++) {
+                        sentence.addField(values[i], type.getDecimals(i));
+                    }
+                }
+
+                @Override
+                public boolean onUnknownType(int channel, int type, int remaining) {
+                    // keep the values decoded so far
+                    LOG.warn("Unknown cayenne type {} on channel {}, skipped the last {} byte(s) of {}", type,
+                            channel, remaining, message.getDevId());
+                    return true;
+                }
+            });
+
+            return sentence;
+        } catch (CayenneException e) {
+            throw new DecodeException("Error decoding cayenne", e);
+        }
+    }
+
+}
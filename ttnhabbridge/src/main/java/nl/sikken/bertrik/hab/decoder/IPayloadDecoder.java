@@ -0,0 +1,43 @@
+package nl.sikken.bertrik.hab.decoder;
+
+import nl.sikken.bertrik.hab.DecodeException;
+import nl.sikken.bertrik.hab.Sentence;
+import nl.sikken.bertrik.hab.ttn.TtnUplinkMessage;
+
+/**
+ * Service provider interface for decoding the payload of an uplink into a UKHAS
+ * sentence.
+ *
+ * Implementations are discovered through {@link java.util.ServiceLoader}, so a
+ * new tracker format can be added by putting a jar with an implementation and a
+ * "META-INF/services/nl.sikken.bertrik.hab.decoder.IPayloadDecoder" entry on the
+ * class path. Implementations need a public no-argument constructor.
+ */
+public interface IPayloadDecoder {
+
+    /**
+     * @return the name of the payload encoding, as used in the configuration
+     */
+    String getName();
+
+    /**
+     * Indicates whether {@link #decode(TtnUplinkMessage)} may be called from
+     * several threads at the same time. Calls to a decoder that is not thread-safe
+     * are serialized.
+     *
+     * @return true if the decoder is thread-safe
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * Decodes an uplink into a UKHAS sentence.
+     *
+     * @param message the message as received from TTN
+     * @return the UKHAS sentence
+     * @throws DecodeException in case of a problem decoding the message
+     */
+    Sentence decode(TtnUplinkMessage message) throws DecodeException;
+
+}
@@ -0,0 +1,67 @@
+package nl.sikken.bertrik.hab.decoder;
+
+import java.nio.BufferUnderflowException;
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import nl.sikken.bertrik.hab.DecodeException;
+import nl.sikken.bertrik.hab.EPayloadEncoding;
+import nl.sikken.bertrik.hab.ICSSPayload;
+import nl.sikken.bertrik.hab.Sentence;
+import nl.sikken.bertrik.hab.ttn.TtnUplinkMessage;
+
+/**
+ * Decodes the raw payload of an ICSS tracker, in "custom_format_icss" format.
+ */
+public final class IcssDecoder implements IPayloadDecoder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IcssDecoder.class);
+
+    @Override
+    public String getName() {
+        return EPayloadEncoding.CUSTOM_FORMAT_ICSS.getName();
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public Sentence decode(TtnUplinkMessage message) throws DecodeException {
+        LOG.info("Decoding 'CUSTOM_FORMAT_ICSS' message...");
+
+        try {
+            // CUSTOM_FORMAT_ICSS payload
+            Instant time = message.getTime();
+            int unix_time_of_message = (int) time.getEpochSecond();
+
+            ICSSPayload icsspayload = ICSSPayload.parse(message.getPayload(), unix_time_of_message);
+            LOG.info("ICSS payload:" + icsspayload.toString());
+
+            // construct a sentence
+            double latitude = icsspayload.getLatitude();
+            double longitude = icsspayload.getLongitude();
+            int altitude = icsspayload.getAltitude();
+            Sentence sentence = new Sentence(message.getDevId(), message.getCounter(), time);
+            sentence.addField(icsspayload.getPressure());
+            sentence.addField(icsspayload.getBoardTemp());
+            sentence.addField(latitude, 6);
+            sentence.addField(longitude, 6);
+            sentence.addField(altitude);
+            sentence.addField(icsspayload.getloadVoltage());
+            sentence.addField(icsspayload.getnoloadVoltage());
+            sentence.addField(icsspayload.getData_received_flag());
+            sentence.addField(icsspayload.getReset_cnt());
+            sentence.addField(icsspayload.getNumSats());
+            sentence.addField(icsspayload.getDays_of_playback());
+
+            return sentence;
+        } catch (BufferUnderflowException e) {
+            throw new DecodeException("Error decoding CUSTOM_FORMAT_ICSS", e);
+        }
+    }
+
+}
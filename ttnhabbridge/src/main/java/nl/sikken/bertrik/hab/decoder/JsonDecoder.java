@@ -0,0 +1,71 @@
+package nl.sikken.bertrik.hab.decoder;
+
+import java.time.Instant;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import nl.sikken.bertrik.hab.DecodeException;
+import nl.sikken.bertrik.hab.EPayloadEncoding;
+import nl.sikken.bertrik.hab.Sentence;
+import nl.sikken.bertrik.hab.ttn.TtnUplinkMessage;
+
+/**
+ * Decodes the fields of the "payload_fields" element, as produced by a TTN
+ * payload function.
+ */
+public final class JsonDecoder implements IPayloadDecoder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JsonDecoder.class);
+
+    @Override
+    public String getName() {
+        return EPayloadEncoding.JSON.getName();
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public Sentence decode(TtnUplinkMessage message) throws DecodeException {
+        LOG.info("Decoding 'json' message...");
+
+        try {
+            Instant time = message.getTime();
+            Map<String, Object> fields = message.getPayloadFields();
+            double latitude = parseDouble(fields.get("lat"));
+            double longitude = parseDouble(fields.get("lon"));
+            double altitude = parseDouble(fields.get("gpsalt"));
+            Sentence sentence = new Sentence(message.getDevId(), message.getCounter(), time);
+            sentence.addField(latitude, 6);
+            sentence.addField(longitude, 6);
+            sentence.addField(altitude, 1);
+
+            if (fields.containsKey("temp") && fields.containsKey("vcc")) {
+                double temp = parseDouble(fields.get("temp"));
+                double vcc = parseDouble(fields.get("vcc"));
+                sentence.addField(temp, 1);
+                sentence.addField(vcc, 3);
+            }
+            return sentence;
+        } catch (RuntimeException e) {
+            throw new DecodeException("Error decoding json", e);
+        }
+    }
+
+    private double parseDouble(Object object) throws DecodeException {
+        if (object instanceof Number) {
+            Number number = (Number) object;
+            return number.doubleValue();
+        }
+        if (object instanceof String) {
+            String string = (String) object;
+            return Double.parseDouble(string);
+        }
+        throw new DecodeException("Cannot decode " + object);
+    }
+
+}
@@ -0,0 +1,57 @@
+package nl.sikken.bertrik.hab.decoder;
+
+import java.nio.BufferUnderflowException;
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import nl.sikken.bertrik.hab.DecodeException;
+import nl.sikken.bertrik.hab.EPayloadEncoding;
+import nl.sikken.bertrik.hab.Sentence;
+import nl.sikken.bertrik.hab.SodaqOnePayload;
+import nl.sikken.bertrik.hab.ttn.TtnUplinkMessage;
+
+/**
+ * Decodes the raw payload of a sodaq one tracker.
+ */
+public final class SodaqOneDecoder implements IPayloadDecoder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SodaqOneDecoder.class);
+
+    @Override
+    public String getName() {
+        return EPayloadEncoding.SODAQ_ONE.getName();
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public Sentence decode(TtnUplinkMessage message) throws DecodeException {
+        LOG.info("Decoding 'sodaqone' message...");
+
+        try {
+            // SODAQ payload
+            SodaqOnePayload sodaq = SodaqOnePayload.parse(message.getPayload());
+
+            // construct a sentence
+            double latitude = sodaq.getLatitude();
+            double longitude = sodaq.getLongitude();
+            double altitude = sodaq.getAltitude();
+            Instant instant = Instant.ofEpochSecond(sodaq.getTimeStamp());
+            Sentence sentence = new Sentence(message.getDevId(), message.getCounter(), instant);
+            sentence.addField(latitude, 6);
+            sentence.addField(longitude, 6);
+            sentence.addField(altitude, 1);
+            sentence.addField(sodaq.getBoardTemp(), 0);
+            sentence.addField(sodaq.getBattVoltage(), 2);
+            return sentence;
+        } catch (BufferUnderflowException e) {
+            throw new DecodeException("Error decoding sodaqone", e);
+        }
+    }
+
+}
@@ -0,0 +1,183 @@
+package nl.sikken.bertrik.hab.habitat;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker, to stop sending requests to a server that keeps failing.
+ *
+ * After a number of consecutive failures the circuit opens and requests are
+ * held back. Once the open time has passed, a single probe request is let
+ * through (half open): if it succeeds the circuit closes again, if it fails the
+ * circuit opens for another period.
+ */
+public final class CircuitBreaker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+
+    private final Map<ECircuitState, Long> entered = new EnumMap<>(ECircuitState.class);
+    private final Map<ECircuitState, Long> rejected = new EnumMap<>(ECircuitState.class);
+    private final Map<ECircuitState, Long> nanosIn = new EnumMap<>(ECircuitState.class);
+
+    private ECircuitState state = ECircuitState.CLOSED;
+    private long stateSince;
+    private int failures;
+    private boolean probing;
+
+    /**
+     * Constructor.
+     *
+     * @param name             the name, for logging
+     * @param failureThreshold the number of consecutive failures that opens the
+     *                         circuit
+     * @param openTime         the time the circuit stays open
+     */
+    public CircuitBreaker(String name, int failureThreshold, Duration openTime) {
+        this(name, failureThreshold, openTime, System::nanoTime);
+    }
+
+    // for testing
+    CircuitBreaker(String name, int failureThreshold, Duration openTime, LongSupplier clock) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openTime.toNanos();
+        this.clock = clock;
+        for (ECircuitState s : ECircuitState.values()) {
+            entered.put(s, 0L);
+            rejected.put(s, 0L);
+            nanosIn.put(s, 0L);
+        }
+        this.stateSince = clock.getAsLong();
+    }
+
+    /**
+     * Creates a circuit breaker that never opens.
+     *
+     * @param name the name, for logging
+     * @return the circuit breaker
+     */
+    public static CircuitBreaker neverOpen(String name) {
+        return new CircuitBreaker(name, Integer.MAX_VALUE, Duration.ZERO);
+    }
+
+    /**
+     * Checks whether a request may be sent now.
+     *
+     * @return true if the request may be sent, false if it should be held back
+     */
+    public synchronized boolean allowRequest() {
+        if ((state == ECircuitState.OPEN) && (clock.getAsLong() - stateSince >= openNanos)) {
+            transition(ECircuitState.HALF_OPEN);
+        }
+        switch (state) {
+        case CLOSED:
+            return true;
+        case HALF_OPEN:
+            if (!probing) {
+                probing = true;
+                return true;
+            }
+            break;
+        default:
+            break;
+        }
+        rejected.merge(state, 1L, Long::sum);
+        return false;
+    }
+
+    /**
+     * Records a successful request (the server responded).
+     */
+    public synchronized void recordSuccess() {
+        failures = 0;
+        probing = false;
+        if (state != ECircuitState.CLOSED) {
+            transition(ECircuitState.CLOSED);
+        }
+    }
+
+    /**
+     * Records a failed request.
+     */
+    public synchronized void recordFailure() {
+        failures++;
+        probing = false;
+        if ((state == ECircuitState.HALF_OPEN)
+                || ((state == ECircuitState.CLOSED) && (failures >= failureThreshold))) {
+            transition(ECircuitState.OPEN);
+        }
+    }
+
+    private void transition(ECircuitState newState) {
+        long now = clock.getAsLong();
+        nanosIn.merge(state, now - stateSince, Long::sum);
+        LOG.info("Circuit '{}' {} -> {}, after {} consecutive failure(s)", name, state, newState, failures);
+        state = newState;
+        stateSince = now;
+        entered.merge(newState, 1L, Long::sum);
+    }
+
+    public synchronized ECircuitState getState() {
+        return state;
+    }
+
+    /**
+     * @return the time until the circuit will let a probe request through, zero
+     *         if not open
+     */
+    public synchronized Duration getRemainingOpenTime() {
+        if (state != ECircuitState.OPEN) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.max(0, openNanos - (clock.getAsLong() - stateSince)));
+    }
+
+    /**
+     * @param s the state
+     * @return the number of times the circuit entered the state
+     */
+    public synchronized long getEnteredCount(ECircuitState s) {
+        return entered.get(s);
+    }
+
+    /**
+     * @param s the state
+     * @return the number of requests held back in the state
+     */
+    public synchronized long getRejectedCount(ECircuitState s) {
+        return rejected.get(s);
+    }
+
+    /**
+     * @param s the state
+     * @return the total time spent in the state
+     */
+    public synchronized Duration getTimeIn(ECircuitState s) {
+        long nanos = nanosIn.get(s);
+        if (s == state) {
+            nanos += clock.getAsLong() - stateSince;
+        }
+        return Duration.ofNanos(nanos);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder(name).append("{state=").append(state);
+        for (ECircuitState s : ECircuitState.values()) {
+            sb.append(',').append(s).append("={entered=").append(entered.get(s)).append(",rejected=")
+                    .append(rejected.get(s)).append(",time=").append(getTimeIn(s).getSeconds()).append("s}");
+        }
+        return sb.append('}').toString();
+    }
+
+}
@@ -0,0 +1,13 @@
+package nl.sikken.bertrik.hab.habitat;
+
+/**
+ * State of a circuit breaker.
+ */
+public enum ECircuitState {
+    /** requests pass, failures are counted */
+    CLOSED,
+    /** requests are held back, until the open time has passed */
+    OPEN,
+    /** one probe request passes, its outcome decides between CLOSED and OPEN */
+    HALF_OPEN
+}
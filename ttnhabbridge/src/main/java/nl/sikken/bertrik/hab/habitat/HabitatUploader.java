@@ -6,12 +6,26 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Base64.Encoder;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.bind.DatatypeConverter;
 
@@ -21,7 +35,15 @@ import org.slf4j.LoggerFactory;
 import nl.sikken.bertrik.hab.habitat.docs.ListenerInformationDoc;
 import nl.sikken.bertrik.hab.habitat.docs.ListenerTelemetryDoc;
 import nl.sikken.bertrik.hab.habitat.docs.PayloadTelemetryDoc;
+import nl.sikken.bertrik.hab.habitat.outbox.EOutboxType;
+import nl.sikken.bertrik.hab.habitat.outbox.HabitatOutbox;
+import nl.sikken.bertrik.hab.habitat.outbox.OutboxEntry;
+import nl.sikken.bertrik.hab.stats.CallStats;
+import okhttp3.ConnectionPool;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
+import retrofit2.Call;
 import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.converter.jackson.JacksonConverterFactory;
@@ -31,17 +53,56 @@ import retrofit2.converter.scalars.ScalarsConverterFactory;
  * Habitat uploader.
  * 
  * Exchanges data with the habitat system. Call to ScheduleXXX methods are
- * non-blocking. All actions run on a single background thread for simplicity.
+ * non-blocking. Actions run on a pool of background threads, the size of the
+ * pool limits the number of requests in flight towards habitat. Uploads of the
+ * same payload telemetry document run one after the other, as habitat rejects
+ * concurrent updates of one document.
+ * 
+ * Payload telemetry can be held back for a short window, so receivers of the
+ * same sentence arriving in later messages (e.g. through another TTN stack or
+ * application) end up in one combined upload.
+ * 
+ * With an outbox, every upload is stored on disk before it is sent and removed
+ * once habitat has accepted it, uploads that did not make it are sent again
+ * after a restart.
+ * 
+ * Failed uploads are retried according to a retry policy, from a separate
+ * scheduler so waiting for a retry never occupies an upload thread. A circuit
+ * breaker holds uploads back while habitat keeps failing. An upload given up
+ * after its last attempt is removed from the outbox too.
  */
 public final class HabitatUploader {
 
     private static final Logger LOG = LoggerFactory.getLogger(HabitatUploader.class);
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final long STOP_TIMEOUT_SEC = 5;
+    // same content type as the scalars converter used for documents as strings
+    private static final MediaType BODY_TYPE = MediaType.get("text/plain; charset=UTF-8");
 
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final ExecutorService executor;
+    private final ScheduledExecutorService windowExecutor;
+    private final ScheduledExecutorService retryExecutor;
+    private final Map<String, PendingPayload> pending = new ConcurrentHashMap<>();
+    private final Map<String, Queue<Runnable>> documentQueues = new HashMap<>();
+    private final AtomicLong uniqueSentences = new AtomicLong();
+    private final AtomicLong mergedSentences = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong deferCount = new AtomicLong();
+    private final AtomicLong giveUpCount = new AtomicLong();
     private final Encoder base64Encoder = Base64.getEncoder();
     private final MessageDigest sha256;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final CallStats payloadStats = new CallStats("payload_telemetry");
+    private final CallStats documentStats = new CallStats("document");
 
     private final IHabitatRestApi restClient;
+    private final boolean mergeReceivers;
+    private final Duration coalesceWindow;
+    private final HabitatOutbox outbox;
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker circuitBreaker;
+    private final UuidPool uuidPool;
 
     /**
      * Creates an actual REST client. Can be used in the constructor.
@@ -51,9 +112,25 @@ public final class HabitatUploader {
      * @return a new REST client
      */
     public static IHabitatRestApi newRestClient(String url, Duration timeout) {
+        return newRestClient(url, timeout, 1);
+    }
+
+    /**
+     * Creates an actual REST client, with a connection pool sized for the given
+     * number of concurrent requests.
+     * 
+     * @param url         the URL to connect to
+     * @param timeout     the connect and read timeout (ms)
+     * @param maxInFlight the maximum number of concurrent requests
+     * @return a new REST client
+     */
+    public static IHabitatRestApi newRestClient(String url, Duration timeout, int maxInFlight) {
         // create the REST client
-        LOG.info("Creating new habitat REST client with timeout {} for {}", timeout, url);
-        OkHttpClient client = new OkHttpClient().newBuilder().callTimeout(timeout).build();
+        LOG.info("Creating new habitat REST client with timeout {} and {} connection(s) for {}", timeout,
+                maxInFlight, url);
+        // calls are executed synchronously, so the number of upload threads limits the concurrency
+        OkHttpClient client = new OkHttpClient().newBuilder().callTimeout(timeout)
+                .connectionPool(new ConnectionPool(maxInFlight, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES)).build();
         Retrofit retrofit = new Retrofit.Builder().baseUrl(url).addConverterFactory(ScalarsConverterFactory.create())
                 .addConverterFactory(JacksonConverterFactory.create()).client(client).build();
 
@@ -61,11 +138,37 @@ public final class HabitatUploader {
     }
 
     /**
-     * Constructor.
+     * Constructor, with one request in flight at a time.
      * 
      * @param restClient the REST client used for uploading
      */
     public HabitatUploader(IHabitatRestApi restClient) {
+        this(restClient, 1, false, Duration.ZERO, null, RetryPolicy.NO_RETRY, CircuitBreaker.neverOpen("habitat"),
+                UuidPool.onDemand(restClient));
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param restClient     the REST client used for uploading
+     * @param maxInFlight    the maximum number of concurrent requests
+     * @param mergeReceivers whether to upload all receivers of a sentence in one
+     *                       payload telemetry document
+     * @param coalesceWindow the time to collect receivers of the same sentence
+     *                       into one payload telemetry document, also without
+     *                       merging, zero to upload immediately
+     * @param outbox         the outbox to store uploads in until habitat accepts
+     *                       them, null to keep them in memory only
+     * @param retryPolicy    the policy for retrying failed uploads
+     * @param circuitBreaker the circuit breaker guarding habitat
+     * @param uuidPool       the pool of UUIDs for listener documents
+     */
+    public HabitatUploader(IHabitatRestApi restClient, int maxInFlight, boolean mergeReceivers,
+            Duration coalesceWindow, HabitatOutbox outbox, RetryPolicy retryPolicy, CircuitBreaker circuitBreaker,
+            UuidPool uuidPool) {
+        this.executor = Executors.newFixedThreadPool(maxInFlight);
+        this.windowExecutor = Executors.newSingleThreadScheduledExecutor();
+        this.retryExecutor = Executors.newSingleThreadScheduledExecutor();
         try {
             this.sha256 = MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
@@ -73,13 +176,29 @@ public final class HabitatUploader {
             throw new IllegalStateException("No SHA-256 hash found", e);
         }
         this.restClient = restClient;
+        this.mergeReceivers = mergeReceivers;
+        this.coalesceWindow = coalesceWindow;
+        this.outbox = outbox;
+        this.retryPolicy = retryPolicy;
+        this.circuitBreaker = circuitBreaker;
+        this.uuidPool = uuidPool;
     }
 
     /**
-     * Starts the uploader process.
+     * Starts the uploader process, sending again what is left in the outbox.
+     * 
+     * @throws IOException in case of a problem opening the outbox
      */
-    public void start() {
+    public void start() throws IOException {
         LOG.info("Starting habitat uploader");
+        uuidPool.start();
+        if (outbox != null) {
+            List<OutboxEntry> entries = outbox.open();
+            if (!entries.isEmpty()) {
+                LOG.info("Sending {} upload(s) left in the outbox", entries.size());
+                entries.forEach(this::submit);
+            }
+        }
 
         LOG.info("Started habitat uploader");
     }
@@ -89,7 +208,32 @@ public final class HabitatUploader {
      */
     public void stop() {
         LOG.info("Stopping habitat uploader");
+        windowExecutor.shutdownNow();
+        retryExecutor.shutdownNow();
+        uuidPool.stop();
+        // do not lose what is still waiting for its window to close
+        for (String docId : new ArrayList<>(pending.keySet())) {
+            flushPayloadTelemetry(docId);
+        }
+        if (outbox != null) {
+            try {
+                outbox.flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
         executor.shutdown();
+        if (outbox != null) {
+            // what is not sent by now stays in the outbox for the next start
+            try {
+                if (!executor.awaitTermination(STOP_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+                    LOG.warn("Uploads still in progress, these will be sent again on next start");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            outbox.close();
+        }
         LOG.info("Stopped habitat uploader");
     }
 
@@ -109,14 +253,254 @@ public final class HabitatUploader {
         // determine docId
         String docId = createDocId(bytes);
 
-        for (HabReceiver receiver : receivers) {
-            // create Json
+        if (coalesceWindow.isZero()) {
+            uniqueSentences.incrementAndGet();
+            submitPayloadTelemetry(docId, bytes, receivers, instant, mergeReceivers);
+            return;
+        }
+
+        // collect the receivers of this sentence until its window closes
+        AtomicBoolean stopped = new AtomicBoolean();
+        pending.compute(docId, (id, payload) -> {
+            if (payload == null) {
+                uniqueSentences.incrementAndGet();
+                payload = new PendingPayload(bytes, instant);
+                try {
+                    windowExecutor.schedule(() -> flushPayloadTelemetry(id), coalesceWindow.toMillis(),
+                            TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // stopping, the window will never close
+                    stopped.set(true);
+                }
+            } else {
+                mergedSentences.incrementAndGet();
+            }
+            payload.addReceivers(receivers);
+            return payload;
+        });
+        if (stopped.get()) {
+            flushPayloadTelemetry(docId);
+        }
+    }
+
+    /**
+     * Uploads the receivers collected for a sentence in one document, at the end
+     * of its window.
+     * 
+     * @param docId the document id
+     */
+    private void flushPayloadTelemetry(String docId) {
+        PendingPayload payload = pending.remove(docId);
+        if (payload != null) {
+            submitPayloadTelemetry(docId, payload.bytes, payload.getReceivers(), payload.instant, true);
+        }
+    }
+
+    /**
+     * Schedules the payload telemetry upload(s) of one sentence.
+     * 
+     * @param docId     the document id
+     * @param bytes     the raw sentence
+     * @param receivers the receivers of the sentence
+     * @param instant   the current date/time
+     * @param merge     whether to upload all receivers in one document
+     */
+    private void submitPayloadTelemetry(String docId, byte[] bytes, List<HabReceiver> receivers, Instant instant,
+            boolean merge) {
+        if (merge) {
+            if (receivers.isEmpty()) {
+                return;
+            }
+            // one document listing all receivers
             PayloadTelemetryDoc doc = new PayloadTelemetryDoc(instant, bytes);
-            doc.addCallSign(receiver.getCallsign());
-            String json = doc.format();
+            for (HabReceiver receiver : receivers) {
+                doc.addCallSign(receiver.getCallsign());
+            }
+            schedule(EOutboxType.PAYLOAD_TELEMETRY, docId, receivers.size(), Arrays.asList(doc.toBytes()));
+        } else {
+            for (HabReceiver receiver : receivers) {
+                // create Json
+                PayloadTelemetryDoc doc = new PayloadTelemetryDoc(instant, bytes);
+                doc.addCallSign(receiver.getCallsign());
+                schedule(EOutboxType.PAYLOAD_TELEMETRY, docId, 1, Arrays.asList(doc.toBytes()));
+            }
+        }
+    }
+
+    /**
+     * Schedules an upload: stores it in the outbox (if any) and then submits it to
+     * our processing threads.
+     * 
+     * @param type      the kind of upload
+     * @param key       the document id or call sign
+     * @param items     the number of items (e.g. receivers) in the upload
+     * @param documents the JSON documents
+     */
+    private void schedule(EOutboxType type, String key, int items, List<byte[]> documents) {
+        if (outbox == null) {
+            submit(new OutboxEntry(0, type, key, items, documents));
+            return;
+        }
+        outbox.append(type, key, items, documents).whenComplete((entry, e) -> {
+            if (e == null) {
+                submit(entry);
+            } else {
+                LOG.warn("Could not store upload in outbox ({}), sending it anyway", e.getMessage());
+                submit(new OutboxEntry(0, type, key, items, documents));
+            }
+        });
+    }
+
+    /**
+     * Submits an upload to our processing threads.
+     * 
+     * @param entry the upload
+     */
+    private void submit(OutboxEntry entry) {
+        submit(entry, 1);
+    }
+
+    /**
+     * Submits an attempt of an upload to our processing threads.
+     * 
+     * @param entry   the upload
+     * @param attempt the attempt number, starting at 1
+     */
+    private void submit(OutboxEntry entry, int attempt) {
+        Runnable task = () -> attempt(entry, attempt);
+        if (entry.getType() != EOutboxType.PAYLOAD_TELEMETRY) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                LOG.warn("Uploader stopped, not sending {}", entry);
+            }
+            return;
+        }
+
+        // concurrent updates of the same payload telemetry document conflict, so
+        // queue this one behind an upload of that document still in progress
+        String docId = entry.getKey();
+        synchronized (documentQueues) {
+            Queue<Runnable> queue = documentQueues.get(docId);
+            if (queue != null) {
+                queue.add(task);
+                return;
+            }
+            documentQueues.put(docId, new ArrayDeque<>());
+        }
+        try {
+            executor.execute(() -> runInOrder(docId, task));
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Uploader stopped, not sending {}", entry);
+            synchronized (documentQueues) {
+                documentQueues.remove(docId);
+            }
+        }
+    }
+
+    /**
+     * Runs an upload of a payload telemetry document, followed by the uploads of
+     * the same document queued in the meantime.
+     * 
+     * @param docId the document id
+     * @param task  the first upload
+     */
+    private void runInOrder(String docId, Runnable task) {
+        Runnable next = task;
+        while (next != null) {
+            next.run();
+            synchronized (documentQueues) {
+                next = documentQueues.get(docId).poll();
+                if (next == null) {
+                    documentQueues.remove(docId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Schedules an attempt of an upload on the retry scheduler.
+     * 
+     * @param entry   the upload
+     * @param attempt the attempt number
+     * @param delay   the delay before submitting the attempt
+     */
+    private void submitLater(OutboxEntry entry, int attempt, Duration delay) {
+        try {
+            retryExecutor.schedule(() -> submit(entry, attempt), delay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Uploader stopped, not retrying {}", entry);
+        }
+    }
+
+    /**
+     * Performs one attempt of an upload, guarded by the circuit breaker, and
+     * schedules a retry if it failed.
+     * 
+     * @param entry   the upload
+     * @param attempt the attempt number, starting at 1
+     */
+    private void attempt(OutboxEntry entry, int attempt) {
+        if (!circuitBreaker.allowRequest()) {
+            // habitat is failing, wait until the circuit lets requests through again
+            deferCount.incrementAndGet();
+            Duration remaining = circuitBreaker.getRemainingOpenTime();
+            submitLater(entry, attempt, remaining.isZero() ? retryPolicy.getDelay(1) : remaining);
+            return;
+        }
+        if (upload(entry)) {
+            circuitBreaker.recordSuccess();
+        } else {
+            circuitBreaker.recordFailure();
+            if (retryPolicy.canRetry(attempt)) {
+                Duration delay = retryPolicy.getDelay(attempt);
+                LOG.info("Retrying {} in {} ms (attempt {})", entry, delay.toMillis(), attempt + 1);
+                retryCount.incrementAndGet();
+                submitLater(entry, attempt + 1, delay);
+            } else {
+                LOG.warn("Giving up on {} after {} attempt(s)", entry, attempt);
+                giveUpCount.incrementAndGet();
+                acknowledge(entry);
+            }
+        }
+    }
 
-            // submit it to our processing thread
-            executor.submit(() -> uploadPayloadTelemetry(docId, json));
+    /**
+     * Performs an upload and acknowledges it in the outbox when habitat accepted
+     * it.
+     * 
+     * @param entry the upload
+     * @return true if habitat accepted or definitely rejected the upload
+     */
+    private boolean upload(OutboxEntry entry) {
+        List<byte[]> documents = entry.getDocuments();
+        boolean done;
+        switch (entry.getType()) {
+        case PAYLOAD_TELEMETRY:
+            done = uploadPayloadTelemetry(entry.getKey(), documents.get(0), entry.getItems());
+            break;
+        case LISTENER:
+            done = uploadListener(entry.getKey(), documents);
+            break;
+        default:
+            LOG.warn("Unhandled upload type {}", entry.getType());
+            done = true;
+            break;
+        }
+        if (done) {
+            acknowledge(entry);
+        }
+        return done;
+    }
+
+    /**
+     * Removes an upload from the outbox, if it is stored there.
+     * 
+     * @param entry the upload
+     */
+    private void acknowledge(OutboxEntry entry) {
+        if ((outbox != null) && (entry.getSequence() > 0)) {
+            outbox.acknowledge(entry.getSequence());
         }
     }
 
@@ -124,23 +508,44 @@ public final class HabitatUploader {
      * Performs the actual payload telemetry upload as a REST-like call towards
      * habitat.
      * 
-     * @param docId the document id
-     * @param json  the JSON payload
+     * @param docId     the document id
+     * @param json      the JSON payload, UTF-8 encoded
+     * @param receivers the number of receivers in the JSON payload
+     * @return true if habitat accepted or definitely rejected the document
      */
-    private void uploadPayloadTelemetry(String docId, String json) {
-        LOG.info("Upload payload telemetry doc {}: {}", docId, json);
+    private boolean uploadPayloadTelemetry(String docId, byte[] json, int receivers) {
+        LOG.info("Upload payload telemetry doc {} with {} receiver(s)", docId, receivers);
         try {
-            Response<String> response = restClient.updateListener(docId, json).execute();
+            Response<String> response = execute(payloadStats, receivers,
+                    restClient.updateListener(docId, RequestBody.create(BODY_TYPE, json)));
             if (response.isSuccessful()) {
                 LOG.info("Result payload telemetry doc {}: {}", docId, response.body());
-            } else {
-                LOG.warn("Result payload telemetry doc {}: {}", docId, response.message());
+                return true;
             }
+            LOG.warn("Result payload telemetry doc {}: {}", docId, response.message());
+            return isRejected(response);
         } catch (IOException e) {
             LOG.warn("Caught IOException: {}", e.getMessage());
         } catch (Exception e) {
             LOG.error("Caught Exception: {}", e);
         }
+        return false;
+    }
+
+    /**
+     * @param response the response
+     * @return true if the request was rejected by habitat, so repeating it makes
+     *         no sense
+     */
+    private static boolean isRejected(Response<?> response) {
+        switch (response.code()) {
+        case 408: // request timeout
+        case 409: // conflict, the document was updated concurrently
+        case 429: // too many requests
+            return false;
+        default:
+            return (response.code() >= 400) && (response.code() < 500);
+        }
     }
 
     /**
@@ -149,7 +554,7 @@ public final class HabitatUploader {
      * @param bytes the raw sentence
      * @return the document id
      */
-    private String createDocId(byte[] bytes) {
+    private synchronized String createDocId(byte[] bytes) {
         byte[] base64 = base64Encoder.encode(bytes);
         byte[] hash = sha256.digest(base64);
         return DatatypeConverter.printHexBinary(hash).toLowerCase(Locale.ROOT);
@@ -162,36 +567,37 @@ public final class HabitatUploader {
      * @param instant  the current date/time
      */
     public void scheduleListenerDataUpload(HabReceiver receiver, Instant instant) {
-        executor.submit(() -> uploadListener(receiver, instant));
+        ListenerInformationDoc info = new ListenerInformationDoc(instant, receiver);
+        ListenerTelemetryDoc telem = new ListenerTelemetryDoc(instant, receiver);
+        // separate uploads, so a retry only sends the document that failed again
+        schedule(EOutboxType.LISTENER, receiver.getCallsign(), 1, Arrays.asList(info.toBytes()));
+        schedule(EOutboxType.LISTENER, receiver.getCallsign(), 1, Arrays.asList(telem.toBytes()));
     }
 
     /**
-     * Uploads listener data (information and telemetry)
+     * Uploads listener data (information or telemetry), each document with a new
+     * UUID.
      * 
-     * @param receiver the receiver/listener
-     * @param instant  the current date/time
+     * @param callSign  the call sign of the receiver/listener
+     * @param documents the listener documents, UTF-8 encoded, one for uploads
+     *                  scheduled by this version but older outboxes can hold
+     *                  information and telemetry together
+     * @return true if habitat accepted or definitely rejected the documents
      */
-    private void uploadListener(HabReceiver receiver, Instant instant) {
-        LOG.info("Upload listener data for {}", receiver);
+    private boolean uploadListener(String callSign, List<byte[]> documents) {
+        LOG.info("Upload listener data for {}", callSign);
         try {
-            // get two uuids
-            LOG.info("Getting UUIDs for listener data upload...");
-            UuidsList list = restClient.getUuids(2).execute().body();
-            List<String> uuids = list.getUuids();
-            if ((uuids != null) && (uuids.size() >= 2)) {
-                LOG.info("Got {} UUIDs", uuids.size());
-
-                // upload payload listener info
-                LOG.info("Upload listener info using UUID {}...", uuids.get(0));
-                ListenerInformationDoc info = new ListenerInformationDoc(instant, receiver);
-                UploadResult infoResult = restClient.uploadDocument(uuids.get(0), info.format()).execute().body();
-                LOG.info("Result listener info: {}", infoResult);
-
-                // upload payload telemetry
-                LOG.info("Upload listener telemetry using UUID {}...", uuids.get(1));
-                ListenerTelemetryDoc telem = new ListenerTelemetryDoc(instant, receiver);
-                UploadResult telemResult = restClient.uploadDocument(uuids.get(1), telem.format()).execute().body();
-                LOG.info("Result listener telemetry: {}", telemResult);
+            List<String> uuids = uuidPool.take(documents.size());
+            if (uuids.size() >= documents.size()) {
+                boolean done = true;
+                for (int i = 0; i < documents.size(); i++) {
+                    LOG.info("Upload listener document using UUID {}...", uuids.get(i));
+                    Response<UploadResult> response = execute(documentStats, restClient
+                            .uploadDocument(uuids.get(i), RequestBody.create(BODY_TYPE, documents.get(i))));
+                    LOG.info("Result listener document: {}", response.body());
+                    done &= response.isSuccessful() || isRejected(response);
+                }
+                return done;
             } else {
                 LOG.warn("Did not receive UUIDs for upload");
             }
@@ -200,6 +606,128 @@ public final class HabitatUploader {
         } catch (Exception e) {
             LOG.error("Caught Exception: {}", e);
         }
+        return false;
+    }
+
+    /**
+     * Executes a REST call, keeping track of its latency and outcome.
+     * 
+     * @param stats the statistics of the endpoint
+     * @param call  the call
+     * @return the response
+     * @throws IOException in case of a communication problem
+     */
+    private <T> Response<T> execute(CallStats stats, Call<T> call) throws IOException {
+        return execute(stats, 1, call);
+    }
+
+    /**
+     * Executes a REST call carrying several items, keeping track of its latency
+     * and outcome.
+     * 
+     * @param stats the statistics of the endpoint
+     * @param items the number of items carried by the call
+     * @param call  the call
+     * @return the response
+     * @throws IOException in case of a communication problem
+     */
+    private <T> Response<T> execute(CallStats stats, int items, Call<T> call) throws IOException {
+        inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Response<T> response = call.execute();
+            success = response.isSuccessful();
+            return response;
+        } finally {
+            stats.record(System.nanoTime() - start, success, items);
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of requests currently in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return the number of distinct sentences scheduled for upload
+     */
+    public long getUniqueSentences() {
+        return uniqueSentences.get();
+    }
+
+    /**
+     * @return the number of sentences merged into an upload that was already
+     *         pending
+     */
+    public long getMergedSentences() {
+        return mergedSentences.get();
+    }
+
+    /**
+     * @return the number of retries scheduled after a failed upload
+     */
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     * @return the number of uploads held back by the circuit breaker
+     */
+    public long getDeferCount() {
+        return deferCount.get();
+    }
+
+    /**
+     * @return the number of uploads given up after the last attempt
+     */
+    public long getGiveUpCount() {
+        return giveUpCount.get();
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public UuidPool getUuidPool() {
+        return uuidPool;
+    }
+
+    /**
+     * @return the latency and throughput statistics, per endpoint
+     */
+    public List<CallStats> getEndpointStats() {
+        return Arrays.asList(payloadStats, uuidPool.getStats(), documentStats);
+    }
+
+    /**
+     * A sentence waiting for its coalescing window to close, with its receivers
+     * so far.
+     */
+    private static final class PendingPayload {
+
+        private final byte[] bytes;
+        private final Instant instant;
+        private final Map<String, HabReceiver> receivers = new LinkedHashMap<>();
+
+        private PendingPayload(byte[] bytes, Instant instant) {
+            this.bytes = bytes;
+            this.instant = instant;
+        }
+
+        // called from within ConcurrentHashMap.compute, so never concurrently
+        private void addReceivers(List<HabReceiver> list) {
+            for (HabReceiver receiver : list) {
+                receivers.putIfAbsent(receiver.getCallsign(), receiver);
+            }
+        }
+
+        private List<HabReceiver> getReceivers() {
+            return new ArrayList<>(receivers.values());
+        }
     }
 
 }
@@ -1,5 +1,6 @@
 package nl.sikken.bertrik.hab.habitat;
 
+import okhttp3.RequestBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.GET;
@@ -13,12 +14,12 @@ import retrofit2.http.Query;
 public interface IHabitatRestApi {
 
     @PUT("/habitat/_design/payload_telemetry/_update/add_listener/{doc_id}")
-    Call<String> updateListener(@Path("doc_id") String docId, @Body String json);
+    Call<String> updateListener(@Path("doc_id") String docId, @Body RequestBody json);
 
     @GET("/_uuids")
     Call<UuidsList> getUuids(@Query("count") int count);
     
     @PUT("/habitat/{doc_id}")
-    Call<UploadResult> uploadDocument(@Path("doc_id") String docId, @Body String document);
+    Call<UploadResult> uploadDocument(@Path("doc_id") String docId, @Body RequestBody document);
 
 }
@@ -0,0 +1,83 @@
+package nl.sikken.bertrik.hab.habitat;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry policy with capped exponential backoff and jitter.
+ *
+ * The delay before retry n (starting at 1) is the base delay times 2^(n-1),
+ * capped at the maximum delay. The actual delay is randomly chosen between half
+ * this delay and the full delay, so retries of many uploads that failed at the
+ * same time do not all hit habitat at the same moment again.
+ */
+public final class RetryPolicy {
+
+    /** policy that never retries */
+    public static final RetryPolicy NO_RETRY = new RetryPolicy(1, Duration.ZERO, Duration.ZERO);
+
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    /**
+     * Constructor.
+     *
+     * @param maxAttempts the maximum number of attempts, including the first one
+     * @param baseDelay   the delay before the first retry
+     * @param maxDelay    the maximum delay between attempts
+     */
+    public RetryPolicy(int maxAttempts, Duration baseDelay, Duration maxDelay) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Need at least one attempt");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMs = baseDelay.toMillis();
+        this.maxDelayMs = Math.max(baseDelayMs, maxDelay.toMillis());
+    }
+
+    /**
+     * @param attempt the number of attempts done so far
+     * @return whether another attempt is allowed
+     */
+    public boolean canRetry(int attempt) {
+        return attempt < maxAttempts;
+    }
+
+    /**
+     * Determines the delay before the next attempt, including jitter.
+     *
+     * @param attempt the number of attempts done so far (at least 1)
+     * @return the delay
+     */
+    public Duration getDelay(int attempt) {
+        long delay = getMaxDelay(attempt).toMillis();
+        long half = delay / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(delay - half + 1));
+    }
+
+    /**
+     * Determines the delay before the next attempt, without jitter.
+     *
+     * @param attempt the number of attempts done so far (at least 1)
+     * @return the delay
+     */
+    Duration getMaxDelay(int attempt) {
+        long delay = baseDelayMs;
+        for (int i = 1; (i < attempt) && (delay < maxDelayMs); i++) {
+            delay *= 2;
+        }
+        return Duration.ofMillis(Math.min(delay, maxDelayMs));
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "{attempts=%d,delay=%dms,maxdelay=%dms}", maxAttempts, baseDelayMs, maxDelayMs);
+    }
+
+}
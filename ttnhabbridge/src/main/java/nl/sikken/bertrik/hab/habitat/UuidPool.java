@@ -0,0 +1,212 @@
+package nl.sikken.bertrik.hab.habitat;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import nl.sikken.bertrik.hab.stats.CallStats;
+import retrofit2.Response;
+
+/**
+ * Pool of UUIDs for uploading documents to habitat.
+ *
+ * UUIDs are fetched from habitat in batches by a background thread, whenever
+ * the pool drops below its low-water mark. Taking UUIDs from the pool does not
+ * wait for habitat, unless the pool is empty and no local fallback is allowed.
+ * With the local fallback, missing UUIDs are generated locally in the same form
+ * as CouchDB uses (32 lowercase hex digits).
+ */
+public final class UuidPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UuidPool.class);
+
+    private final IHabitatRestApi restClient;
+    private final int batchSize;
+    private final int lowWater;
+    private final boolean localFallback;
+    private final Deque<String> pool = new ArrayDeque<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean refilling = new AtomicBoolean();
+
+    private final CallStats stats = new CallStats("uuids");
+    private final AtomicLong takenCount = new AtomicLong();
+    private final AtomicLong localCount = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param restClient    the REST client used for fetching UUIDs
+     * @param batchSize     the number of UUIDs to fetch at once
+     * @param lowWater      the pool size below which a refill is started, zero to
+     *                      only fetch on demand
+     * @param localFallback whether to generate UUIDs locally when the pool is
+     *                      empty
+     */
+    public UuidPool(IHabitatRestApi restClient, int batchSize, int lowWater, boolean localFallback) {
+        this.restClient = restClient;
+        this.batchSize = Math.max(batchSize, 1);
+        this.lowWater = lowWater;
+        this.localFallback = localFallback;
+    }
+
+    /**
+     * Creates a pool that fetches UUIDs on demand only, as many as needed.
+     *
+     * @param restClient the REST client used for fetching UUIDs
+     * @return the pool
+     */
+    public static UuidPool onDemand(IHabitatRestApi restClient) {
+        return new UuidPool(restClient, 1, 0, false);
+    }
+
+    /**
+     * Starts filling the pool.
+     */
+    public void start() {
+        refillIfLow();
+    }
+
+    /**
+     * Stops filling the pool.
+     */
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Takes UUIDs from the pool.
+     *
+     * @param count the number of UUIDs
+     * @return the UUIDs, fewer than requested only if they could not be fetched
+     *         from habitat
+     * @throws IOException in case of a communication problem fetching UUIDs
+     */
+    public List<String> take(int count) throws IOException {
+        List<String> uuids = new ArrayList<>(count);
+        synchronized (pool) {
+            while ((uuids.size() < count) && !pool.isEmpty()) {
+                uuids.add(pool.poll());
+            }
+        }
+        takenCount.addAndGet(uuids.size());
+        if (uuids.size() < count) {
+            if (localFallback) {
+                while (uuids.size() < count) {
+                    uuids.add(generateLocalId());
+                    localCount.incrementAndGet();
+                }
+            } else {
+                // nothing else we can do but wait for habitat
+                List<String> fetched = fetch(Math.max(batchSize, count - uuids.size()));
+                int needed = Math.min(count - uuids.size(), fetched.size());
+                uuids.addAll(fetched.subList(0, needed));
+                add(fetched.subList(needed, fetched.size()));
+            }
+        }
+        refillIfLow();
+        return uuids;
+    }
+
+    /**
+     * @return a new id, in the same form as the UUIDs generated by CouchDB
+     */
+    static String generateLocalId() {
+        UUID uuid = UUID.randomUUID();
+        return String.format(Locale.ROOT, "%016x%016x", uuid.getMostSignificantBits(),
+                uuid.getLeastSignificantBits());
+    }
+
+    private void refillIfLow() {
+        if ((size() < lowWater) && refilling.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::refill);
+            } catch (RejectedExecutionException e) {
+                refilling.set(false);
+            }
+        }
+    }
+
+    private void refill() {
+        try {
+            add(fetch(batchSize));
+            LOG.info("Refilled UUID pool, {} UUIDs available", size());
+        } catch (IOException e) {
+            LOG.warn("Refilling UUID pool failed: {}", e.getMessage());
+        } finally {
+            refilling.set(false);
+        }
+    }
+
+    private void add(List<String> uuids) {
+        synchronized (pool) {
+            pool.addAll(uuids);
+        }
+    }
+
+    private List<String> fetch(int count) throws IOException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Response<UuidsList> response = restClient.getUuids(count).execute();
+            UuidsList list = response.body();
+            if (!response.isSuccessful() || (list == null) || (list.getUuids() == null)) {
+                LOG.warn("Did not receive UUIDs: {}", response.message());
+                return Collections.emptyList();
+            }
+            success = true;
+            return list.getUuids();
+        } finally {
+            stats.record(System.nanoTime() - start, success, count);
+        }
+    }
+
+    /**
+     * @return the number of UUIDs in the pool
+     */
+    public int size() {
+        synchronized (pool) {
+            return pool.size();
+        }
+    }
+
+    /**
+     * @return the number of UUIDs taken from the pool
+     */
+    public long getTakenCount() {
+        return takenCount.get();
+    }
+
+    /**
+     * @return the number of ids generated locally, because the pool was empty
+     */
+    public long getLocalCount() {
+        return localCount.get();
+    }
+
+    /**
+     * @return the statistics of the UUID endpoint
+     */
+    public CallStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "uuidpool{size=%d,taken=%d,local=%d}", size(), getTakenCount(),
+                getLocalCount());
+    }
+
+}
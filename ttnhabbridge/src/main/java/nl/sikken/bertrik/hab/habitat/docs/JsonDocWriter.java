@@ -0,0 +1,64 @@
+package nl.sikken.bertrik.hab.habitat.docs;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+
+/**
+ * Writes habitat documents as JSON with a streaming generator, into a buffer
+ * that is re-used by each thread.
+ */
+final class JsonDocWriter {
+
+    /** date format for all habitat documents, in the local time zone */
+    static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ISO_OFFSET_DATE_TIME
+            .withZone(ZoneId.systemDefault());
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final int INITIAL_SIZE = 512;
+    private static final ThreadLocal<ByteArrayBuilder> BUFFER = ThreadLocal
+            .withInitial(() -> new ByteArrayBuilder(INITIAL_SIZE));
+
+    private JsonDocWriter() {
+        // utility class
+    }
+
+    /**
+     * Writes a document.
+     *
+     * @param doc the document contents
+     * @return the document as UTF-8 encoded JSON
+     */
+    static byte[] write(IJsonDoc doc) {
+        ByteArrayBuilder buffer = BUFFER.get();
+        buffer.reset();
+        try (JsonGenerator generator = FACTORY.createGenerator(buffer)) {
+            doc.write(generator);
+        } catch (IOException e) {
+            // cannot happen when writing to memory
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Contents of a JSON document.
+     */
+    interface IJsonDoc {
+
+        /**
+         * Writes the document.
+         *
+         * @param generator the JSON generator to write to
+         * @throws IOException in case of a problem writing
+         */
+        void write(JsonGenerator generator) throws IOException;
+
+    }
+
+}
@@ -1,23 +1,17 @@
 package nl.sikken.bertrik.hab.habitat.docs;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.time.OffsetDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 
 /**
  * Abstract listener doc, base class for specific listener docs.
  */
 public abstract class ListenerDoc {
 
-    private final DateTimeFormatter dateFormat = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
-    private final JsonNodeFactory factory = new JsonNodeFactory(false);
-
-    private final OffsetDateTime date;
+    private final String date;
     private final String type;
 
     /**
@@ -27,34 +21,40 @@ public abstract class ListenerDoc {
      */
     protected ListenerDoc(Instant instant, String type) {
         this.type = type;
-        this.date = OffsetDateTime.ofInstant(instant, ZoneId.systemDefault());
+        this.date = JsonDocWriter.DATE_FORMAT.format(instant);
     }
 
     /**
      * @return the JSON representation
      */
     public String format() {
-        ObjectNode topNode = factory.objectNode();
-        topNode.set("type", factory.textNode(type));
-        topNode.set("time_created", factory.textNode(dateFormat.format(date)));
-        topNode.set("time_uploaded", factory.textNode(dateFormat.format(date)));
-        topNode.set("data", createDataNode());
-
-        return topNode.toString();
+        return new String(toBytes(), StandardCharsets.UTF_8);
     }
 
     /**
-     * @return the json node factory
+     * @return the JSON representation, UTF-8 encoded
      */
-    protected final JsonNodeFactory factory() {
-        return factory;
+    public byte[] toBytes() {
+        return JsonDocWriter.write(this::write);
+    }
+
+    private void write(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", type);
+        generator.writeStringField("time_created", date);
+        generator.writeStringField("time_uploaded", date);
+        generator.writeObjectFieldStart("data");
+        writeData(generator);
+        generator.writeEndObject();
+        generator.writeEndObject();
     }
 
     /**
-     * Creates the sub-type specific 'data' part of the listener doc.
+     * Writes the fields of the sub-type specific 'data' part of the listener doc.
      * 
-     * @return the 'data' node contents
+     * @param generator the JSON generator, positioned inside the 'data' object
+     * @throws IOException in case of a problem writing
      */
-    abstract JsonNode createDataNode();
+    abstract void writeData(JsonGenerator generator) throws IOException;
 
 }
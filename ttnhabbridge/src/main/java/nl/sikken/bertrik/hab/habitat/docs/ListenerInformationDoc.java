@@ -1,10 +1,10 @@
 package nl.sikken.bertrik.hab.habitat.docs;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.util.Locale;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 
 import nl.sikken.bertrik.hab.habitat.HabReceiver;
 
@@ -32,16 +32,14 @@ public final class ListenerInformationDoc extends ListenerDoc {
     }
 
     @Override
-    protected JsonNode createDataNode() {
-        ObjectNode node = factory().objectNode();
-        node.set("callsign", factory().textNode(receiver.getCallsign()));
-        node.set("radio", factory().textNode("TheThingsNetwork"));
+    protected void writeData(JsonGenerator generator) throws IOException {
+        generator.writeStringField("callsign", receiver.getCallsign());
+        generator.writeStringField("radio", "TheThingsNetwork");
         double altitude = receiver.getLocation().getAlt();
         if (Double.isFinite(altitude)) {
             String antenna = String.format(Locale.ROOT, "%.0f m", altitude);
-            node.set("antenna", factory().textNode(antenna));
+            generator.writeStringField("antenna", antenna);
         }
-        return node;
     }
 
 }
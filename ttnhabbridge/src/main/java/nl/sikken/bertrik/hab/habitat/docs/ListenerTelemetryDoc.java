@@ -1,9 +1,9 @@
 package nl.sikken.bertrik.hab.habitat.docs;
 
+import java.io.IOException;
 import java.time.Instant;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 
 import nl.sikken.bertrik.hab.habitat.HabReceiver;
 
@@ -28,13 +28,11 @@ public final class ListenerTelemetryDoc extends ListenerDoc {
     }
 
     @Override
-    protected JsonNode createDataNode() {
-        ObjectNode node = factory().objectNode();
-        node.set("callsign", factory().textNode(receiver.getCallsign()));
-        node.set("latitude", factory().numberNode(receiver.getLocation().getLat()));
-        node.set("longitude", factory().numberNode(receiver.getLocation().getLon()));
-        node.set("altitude", factory().numberNode(receiver.getLocation().getAlt()));
-        return node;
+    protected void writeData(JsonGenerator generator) throws IOException {
+        generator.writeStringField("callsign", receiver.getCallsign());
+        generator.writeNumberField("latitude", receiver.getLocation().getLat());
+        generator.writeNumberField("longitude", receiver.getLocation().getLon());
+        generator.writeNumberField("altitude", receiver.getLocation().getAlt());
     }
 
 }
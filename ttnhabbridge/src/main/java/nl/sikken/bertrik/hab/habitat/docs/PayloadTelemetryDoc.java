@@ -1,14 +1,12 @@
 package nl.sikken.bertrik.hab.habitat.docs;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.time.OffsetDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 
 /**
  * Payload telemetry document.
@@ -17,11 +15,9 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
  */
 public final class PayloadTelemetryDoc {
 
-    private final DateTimeFormatter dateFormat = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
-
-    private final OffsetDateTime dateCreated;
-    private final OffsetDateTime dateUploaded;
-    private final List<String> callSigns = new ArrayList<>();
+    private final String dateCreated;
+    private final String dateUploaded;
+    private final Set<String> callSigns = new LinkedHashSet<>();
     private final byte[] rawBytes;
 
     /**
@@ -31,8 +27,8 @@ public final class PayloadTelemetryDoc {
      * @param rawBytes the raw telemetry string as bytes
      */
     public PayloadTelemetryDoc(Instant instant, byte[] rawBytes) {
-        this.dateCreated = OffsetDateTime.ofInstant(instant, ZoneId.systemDefault());
-        this.dateUploaded = OffsetDateTime.ofInstant(instant, ZoneId.systemDefault());
+        this.dateCreated = JsonDocWriter.DATE_FORMAT.format(instant);
+        this.dateUploaded = dateCreated;
         this.rawBytes = rawBytes.clone();
     }
 
@@ -44,26 +40,34 @@ public final class PayloadTelemetryDoc {
      * @return the payload telemetry doc as JSON string
      */
     public String format() {
-        JsonNodeFactory factory = new JsonNodeFactory(false);
-        ObjectNode topNode = factory.objectNode();
+        return new String(toBytes(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the payload telemetry doc as JSON, UTF-8 encoded
+     */
+    public byte[] toBytes() {
+        return JsonDocWriter.write(this::write);
+    }
 
-        // create data node
-        ObjectNode dataNode = factory.objectNode();
-        dataNode.set("_raw", factory.binaryNode(rawBytes));
+    private void write(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
 
-        // create receivers node
-        ObjectNode receiversNode = factory.objectNode();
+        // data node
+        generator.writeObjectFieldStart("data");
+        generator.writeBinaryField("_raw", rawBytes);
+        generator.writeEndObject();
+
+        // receivers node, one entry per call sign
+        generator.writeObjectFieldStart("receivers");
         for (String callSign : callSigns) {
-            ObjectNode receiverNode = factory.objectNode();
-            receiverNode.set("time_created", factory.textNode(dateFormat.format(dateCreated)));
-            receiverNode.set("time_uploaded", factory.textNode(dateFormat.format(dateUploaded)));
-            receiversNode.set(callSign, receiverNode);
+            generator.writeObjectFieldStart(callSign);
+            generator.writeStringField("time_created", dateCreated);
+            generator.writeStringField("time_uploaded", dateUploaded);
+            generator.writeEndObject();
         }
+        generator.writeEndObject();
 
-        // put it together in the top node
-        topNode.set("data", dataNode);
-        topNode.set("receivers", receiversNode);
-
-        return topNode.toString();
+        generator.writeEndObject();
     }
 }
@@ -0,0 +1,39 @@
+package nl.sikken.bertrik.hab.habitat.outbox;
+
+import java.util.Arrays;
+
+/**
+ * Kind of upload stored in the outbox.
+ */
+public enum EOutboxType {
+    /** payload telemetry document, keyed by its document id */
+    PAYLOAD_TELEMETRY(1),
+    /** listener information or telemetry document, keyed by call sign */
+    LISTENER(2);
+
+    private final int code;
+
+    EOutboxType(int code) {
+        this.code = code;
+    }
+
+    /**
+     * @return the code of this type, as stored on disk
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Finds the type by its code.
+     *
+     * @param code the code, as stored on disk
+     * @return the type
+     * @throws IllegalArgumentException if the code is unknown
+     */
+    public static EOutboxType fromCode(int code) {
+        return Arrays.stream(values()).filter(t -> t.code == code).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown outbox type " + code));
+    }
+
+}
@@ -0,0 +1,550 @@
+package nl.sikken.bertrik.hab.habitat.outbox;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent outbox for habitat uploads, implemented as a write-ahead log.
+ *
+ * Uploads are appended to a log on disk before they are sent, and acknowledged
+ * in the same log once habitat has accepted them. Entries that were never
+ * acknowledged are returned by {@link #open()}, so they can be sent again after
+ * a restart.
+ *
+ * The log consists of segment files, named after the first sequence number they
+ * can contain. A new segment is started when the current one is full, segments
+ * are deleted once all their entries are acknowledged. A full segment with only
+ * a few entries left unacknowledged (e.g. uploads that failed) is compacted:
+ * these entries are copied to the current segment, keeping their sequence
+ * number, and the segment is deleted. So a few unacknowledged entries never keep
+ * the rest of the log on disk. Acknowledgements in a deleted segment of entries
+ * whose data is still kept in another segment are copied as well.
+ *
+ * Each record on disk consists of its length, a CRC32 checksum, its kind (data
+ * or acknowledgement), its sequence number and, for data records, the encoded
+ * entry. All writes are done sequentially by a single writer thread, which
+ * writes whatever is queued in one go and then syncs the file once for the whole
+ * batch (group commit).
+ */
+public final class HabitatOutbox {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HabitatOutbox.class);
+
+    /** default maximum size of a segment file */
+    public static final long DEFAULT_SEGMENT_BYTES = 4L * 1024 * 1024;
+
+    private static final String SEGMENT_PREFIX = "outbox-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 8;
+    private static final int BODY_HEADER_SIZE = 9;
+    private static final byte KIND_DATA = 1;
+    private static final byte KIND_ACK = 2;
+    private static final int MAX_BATCH = 256;
+    // a full segment is compacted once at most 1 in this many entries is unacknowledged
+    private static final int COMPACT_RATIO = 4;
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+
+    // owned by the writer thread, once opened
+    private final NavigableMap<Long, Segment> segments = new TreeMap<>();
+    // the segment holding the data record of each unacknowledged entry
+    private final Map<Long, Segment> unacknowledged = new HashMap<>();
+    private Segment current;
+    private FileChannel channel;
+    private long nextSequence;
+
+    private final AtomicLong appendCount = new AtomicLong();
+    private final AtomicLong ackCount = new AtomicLong();
+    private final AtomicLong syncCount = new AtomicLong();
+    private final AtomicLong compactCount = new AtomicLong();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicInteger segmentCount = new AtomicInteger();
+
+    private Thread writer;
+    private volatile boolean running;
+
+    /**
+     * Constructor.
+     *
+     * @param dir the directory holding the segment files
+     */
+    public HabitatOutbox(Path dir) {
+        this(dir, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param dir          the directory holding the segment files
+     * @param segmentBytes the size after which a new segment is started
+     */
+    public HabitatOutbox(Path dir, long segmentBytes) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Opens the outbox, recovering the existing log, and starts the writer
+     * thread.
+     *
+     * @return the entries that were never acknowledged, in order of appending
+     * @throws IOException in case of a problem reading or creating the log
+     */
+    public synchronized List<OutboxEntry> open() throws IOException {
+        if (running) {
+            throw new IllegalStateException("Outbox already open");
+        }
+        Files.createDirectories(dir);
+
+        // replay the log, a data record copied by compaction replaces the original
+        NavigableMap<Long, OutboxEntry> entries = new TreeMap<>();
+        long lastSequence = 0;
+        for (Path path : listSegments()) {
+            long first = parseSequence(path);
+            Segment segment = new Segment(path);
+            segments.put(first, segment);
+            lastSequence = Math.max(lastSequence, first - 1);
+            for (Record record : readSegment(path)) {
+                if (record.kind == KIND_DATA) {
+                    entries.put(record.sequence, OutboxEntry.decode(record.sequence, record.data));
+                    segment.sequences.add(record.sequence);
+                    segment.pending++;
+                    Segment previous = unacknowledged.put(record.sequence, segment);
+                    if (previous != null) {
+                        previous.pending--;
+                    }
+                    lastSequence = Math.max(lastSequence, record.sequence);
+                } else {
+                    Segment segmentOfEntry = unacknowledged.remove(record.sequence);
+                    if (segmentOfEntry != null) {
+                        segmentOfEntry.pending--;
+                        entries.remove(record.sequence);
+                    }
+                }
+            }
+        }
+        pendingCount.set(entries.size());
+        nextSequence = lastSequence + 1;
+        startSegment();
+        compactSegments();
+        LOG.info("Opened outbox in {}, {} unacknowledged entries in {} segment(s)", dir, entries.size(),
+                segments.size());
+
+        running = true;
+        writer = new Thread(this::write, "outbox");
+        writer.start();
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * Appends an upload to the outbox.
+     *
+     * @param type      the kind of upload
+     * @param key       the document id or call sign
+     * @param items     the number of items (e.g. receivers) in the upload
+     * @param documents the JSON documents, UTF-8 encoded
+     * @return future completed with the entry and its sequence number, once it
+     *         is safely on disk
+     */
+    public CompletableFuture<OutboxEntry> append(EOutboxType type, String key, int items, List<byte[]> documents) {
+        return enqueue(new Request(KIND_DATA, new OutboxEntry(0, type, key, items, documents), 0));
+    }
+
+    /**
+     * Marks an entry as acknowledged by habitat, so it is not sent again.
+     *
+     * @param sequence the sequence number of the entry
+     */
+    public void acknowledge(long sequence) {
+        enqueue(new Request(KIND_ACK, null, sequence));
+    }
+
+    /**
+     * Waits until everything queued so far is written to disk.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void flush() throws InterruptedException {
+        try {
+            enqueue(new Request((byte) 0, null, 0)).get();
+        } catch (ExecutionException e) {
+            LOG.warn("Outbox flush failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Writes what is still queued and closes the outbox.
+     */
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOG.warn("Closing outbox segment failed: {}", e.getMessage());
+        }
+        LOG.info("Closed outbox, {}", this);
+    }
+
+    private CompletableFuture<OutboxEntry> enqueue(Request request) {
+        if (!running) {
+            request.future.completeExceptionally(new IllegalStateException("Outbox is not open"));
+        } else {
+            queue.add(request);
+        }
+        return request.future;
+    }
+
+    private void write() {
+        List<Request> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            Request first;
+            try {
+                first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, MAX_BATCH - 1);
+            try {
+                writeBatch(batch);
+                for (Request request : batch) {
+                    request.future.complete(request.entry);
+                }
+            } catch (IOException e) {
+                LOG.error("Writing to outbox failed: {}", e.getMessage());
+                for (Request request : batch) {
+                    request.future.completeExceptionally(e);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes a batch of requests with a single sync at the end.
+     */
+    private void writeBatch(List<Request> batch) throws IOException {
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (Request request : batch) {
+            if (request.kind == KIND_DATA) {
+                byte[] body = request.entry.encode();
+                int size = HEADER_SIZE + BODY_HEADER_SIZE + body.length;
+                if ((current.size > 0) && (current.size + size > segmentBytes)) {
+                    writeBuffers(buffers);
+                    channel.close();
+                    startSegment();
+                }
+                long sequence = nextSequence++;
+                request.entry = request.entry.withSequence(sequence);
+                buffers.add(encodeRecord(KIND_DATA, sequence, body));
+                current.size += size;
+                current.sequences.add(sequence);
+                current.pending++;
+                unacknowledged.put(sequence, current);
+                pendingCount.incrementAndGet();
+                appendCount.incrementAndGet();
+            } else if ((request.kind == KIND_ACK) && unacknowledged.containsKey(request.sequence)) {
+                ByteBuffer buffer = encodeRecord(KIND_ACK, request.sequence, new byte[0]);
+                buffers.add(buffer);
+                current.size += buffer.remaining();
+                unacknowledged.remove(request.sequence).pending--;
+                pendingCount.decrementAndGet();
+                ackCount.incrementAndGet();
+            }
+        }
+        writeBuffers(buffers);
+        compactSegments();
+    }
+
+    private void writeBuffers(List<ByteBuffer> buffers) throws IOException {
+        if (buffers.isEmpty()) {
+            return;
+        }
+        ByteBuffer[] array = buffers.toArray(new ByteBuffer[0]);
+        while (array[array.length - 1].hasRemaining()) {
+            channel.write(array);
+        }
+        channel.force(false);
+        syncCount.incrementAndGet();
+        buffers.clear();
+    }
+
+    private static ByteBuffer encodeRecord(byte kind, long sequence, byte[] data) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + BODY_HEADER_SIZE + data.length);
+        buffer.putInt(BODY_HEADER_SIZE + data.length);
+        buffer.putInt(0);
+        buffer.put(kind);
+        buffer.putLong(sequence);
+        buffer.put(data);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_SIZE, BODY_HEADER_SIZE + data.length);
+        buffer.putInt(4, (int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Reads all valid records from a segment, truncating the segment after the
+     * last valid record (e.g. one that was only partially written).
+     */
+    private List<Record> readSegment(Path path) throws IOException {
+        List<Record> records = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if ((length < BODY_HEADER_SIZE) || (length > buffer.remaining())) {
+                buffer.position(start);
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.array(), buffer.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                buffer.position(start);
+                break;
+            }
+            byte kind = buffer.get();
+            long sequence = buffer.getLong();
+            byte[] data = new byte[length - BODY_HEADER_SIZE];
+            buffer.get(data);
+            records.add(new Record(kind, sequence, data));
+        }
+        if (buffer.hasRemaining()) {
+            LOG.warn("Truncating {} invalid byte(s) at the end of {}", buffer.remaining(), path);
+            try (FileChannel fc = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                fc.truncate(buffer.position());
+            }
+        }
+        return records;
+    }
+
+    private void startSegment() throws IOException {
+        Path path = dir.resolve(String.format(Locale.ROOT, "%s%020d%s", SEGMENT_PREFIX, nextSequence,
+                SEGMENT_SUFFIX));
+        current = segments.computeIfAbsent(nextSequence, s -> new Segment(path));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        current.size = channel.size();
+        segmentCount.set(segments.size());
+    }
+
+    /**
+     * Deletes the full segments that have no unacknowledged entries left, and the
+     * mostly acknowledged ones after copying what is still needed of them to the
+     * current segment.
+     */
+    private void compactSegments() throws IOException {
+        Iterator<Segment> it = segments.values().iterator();
+        while (it.hasNext()) {
+            Segment segment = it.next();
+            if ((segment == current) || (segment.pending * COMPACT_RATIO > segment.sequences.size())) {
+                continue;
+            }
+            // acknowledgements only refer to entries in the same or an older segment
+            boolean oldest = (segment == segments.firstEntry().getValue());
+            if ((segment.pending > 0) || !oldest) {
+                copyLiveRecords(segment);
+            }
+            LOG.info("Deleting outbox segment {}", segment.path);
+            Files.deleteIfExists(segment.path);
+            it.remove();
+        }
+        segmentCount.set(segments.size());
+    }
+
+    /**
+     * Copies the records of a segment that are still needed to the current
+     * segment, and syncs them to disk. These are the unacknowledged entries, and
+     * the acknowledgements of entries kept in another segment.
+     */
+    private void copyLiveRecords(Segment segment) throws IOException {
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (Record record : readSegment(segment.path)) {
+            if (record.kind == KIND_DATA) {
+                if (unacknowledged.get(record.sequence) == segment) {
+                    ByteBuffer buffer = encodeRecord(KIND_DATA, record.sequence, record.data);
+                    buffers.add(buffer);
+                    current.size += buffer.remaining();
+                    current.sequences.add(record.sequence);
+                    current.pending++;
+                    segment.pending--;
+                    unacknowledged.put(record.sequence, current);
+                }
+            } else if (isKeptElsewhere(record.sequence, segment)) {
+                ByteBuffer buffer = encodeRecord(KIND_ACK, record.sequence, new byte[0]);
+                buffers.add(buffer);
+                current.size += buffer.remaining();
+            }
+        }
+        if (!buffers.isEmpty()) {
+            writeBuffers(buffers);
+            compactCount.incrementAndGet();
+        }
+    }
+
+    private boolean isKeptElsewhere(long sequence, Segment segment) {
+        for (Segment other : segments.values()) {
+            if ((other != segment) && other.sequences.contains(sequence)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream.filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long parseSequence(Path path) throws IOException {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid outbox segment name " + name, e);
+        }
+    }
+
+    /**
+     * @return the number of entries not yet acknowledged
+     */
+    public int getPending() {
+        return pendingCount.get();
+    }
+
+    /**
+     * @return the number of entries appended since opening
+     */
+    public long getAppendCount() {
+        return appendCount.get();
+    }
+
+    /**
+     * @return the number of entries acknowledged since opening
+     */
+    public long getAckCount() {
+        return ackCount.get();
+    }
+
+    /**
+     * @return the number of syncs to disk since opening
+     */
+    public long getSyncCount() {
+        return syncCount.get();
+    }
+
+    /**
+     * @return the number of segments compacted since opening
+     */
+    public long getCompactCount() {
+        return compactCount.get();
+    }
+
+    /**
+     * @return the number of segment files
+     */
+    public int getSegmentCount() {
+        return segmentCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "outbox{pending=%d,appended=%d,acked=%d,syncs=%d,compactions=%d,segments=%d}", getPending(),
+                getAppendCount(), getAckCount(), getSyncCount(), getCompactCount(), getSegmentCount());
+    }
+
+    /**
+     * A segment file, with the sequence numbers of the entries in it and the
+     * number of these not yet acknowledged.
+     */
+    private static final class Segment {
+        private final Path path;
+        private final Set<Long> sequences = new HashSet<>();
+        private long size;
+        private int pending;
+
+        private Segment(Path path) {
+            this.path = path;
+        }
+    }
+
+    /**
+     * A record as read from a segment file.
+     */
+    private static final class Record {
+        private final byte kind;
+        private final long sequence;
+        private final byte[] data;
+
+        private Record(byte kind, long sequence, byte[] data) {
+            this.kind = kind;
+            this.sequence = sequence;
+            this.data = data.clone();
+        }
+    }
+
+    /**
+     * A request for the writer thread.
+     */
+    private static final class Request {
+        private final byte kind;
+        private final long sequence;
+        private final CompletableFuture<OutboxEntry> future = new CompletableFuture<>();
+        private OutboxEntry entry;
+
+        private Request(byte kind, OutboxEntry entry, long sequence) {
+            this.kind = kind;
+            this.entry = entry;
+            this.sequence = sequence;
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+package nl.sikken.bertrik.hab.habitat.outbox;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One upload stored in the outbox, consisting of one or more JSON documents.
+ * 
+ * The documents are kept as UTF-8 encoded byte arrays, which are shared and
+ * must not be modified.
+ */
+public final class OutboxEntry {
+
+    private final long sequence;
+    private final EOutboxType type;
+    private final String key;
+    private final int items;
+    private final List<byte[]> documents;
+
+    /**
+     * Constructor.
+     *
+     * @param sequence  the sequence number in the outbox
+     * @param type      the kind of upload
+     * @param key       the document id or call sign
+     * @param items     the number of items (e.g. receivers) in the upload
+     * @param documents the JSON documents, UTF-8 encoded
+     */
+    public OutboxEntry(long sequence, EOutboxType type, String key, int items, List<byte[]> documents) {
+        this.sequence = sequence;
+        this.type = type;
+        this.key = key;
+        this.items = items;
+        this.documents = Collections.unmodifiableList(new ArrayList<>(documents));
+    }
+
+    /**
+     * Creates a copy of this entry with a new sequence number.
+     *
+     * @param sequence the sequence number
+     * @return the new entry
+     */
+    OutboxEntry withSequence(long sequence) {
+        return new OutboxEntry(sequence, type, key, items, documents);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public EOutboxType getType() {
+        return type;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getItems() {
+        return items;
+    }
+
+    public List<byte[]> getDocuments() {
+        return documents;
+    }
+
+    /**
+     * @return the entry (without sequence number) in its binary form
+     * @throws IOException in case of a problem encoding the entry
+     */
+    byte[] encode() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DataOutputStream dos = new DataOutputStream(bos)) {
+            dos.writeByte(type.getCode());
+            dos.writeUTF(key);
+            dos.writeInt(items);
+            dos.writeInt(documents.size());
+            for (byte[] document : documents) {
+                dos.writeInt(document.length);
+                dos.write(document);
+            }
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * Decodes an entry from its binary form.
+     *
+     * @param sequence the sequence number
+     * @param data     the binary form
+     * @return the entry
+     * @throws IOException in case of a problem decoding the entry
+     */
+    static OutboxEntry decode(long sequence, byte[] data) throws IOException {
+        try (DataInputStream dis = new DataInputStream(new ByteArrayInputStream(data))) {
+            EOutboxType type = EOutboxType.fromCode(dis.readByte());
+            String key = dis.readUTF();
+            int items = dis.readInt();
+            int count = dis.readInt();
+            List<byte[]> documents = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                byte[] document = new byte[dis.readInt()];
+                dis.readFully(document);
+                documents.add(document);
+            }
+            return new OutboxEntry(sequence, type, key, items, documents);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s#%d(%s)", type, sequence, key);
+    }
+
+}
@@ -0,0 +1,133 @@
+package nl.sikken.bertrik.hab.pipeline;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+
+import nl.sikken.bertrik.hab.pipeline.PipelineStage.IStageHandler;
+
+/**
+ * Pipeline stage that processes items with the same key in submission order.
+ *
+ * The stage consists of a fixed number of lanes, each with its own bounded
+ * queue and a single worker thread. The key of an item determines its lane, so
+ * items with the same key are processed one after the other, while items with
+ * different keys can be processed in parallel.
+ *
+ * @param <T> the type of item processed by this stage
+ */
+public final class KeyedExecutor<T> {
+
+    private final String name;
+    private final PipelineStage<T>[] lanes;
+
+    /**
+     * Constructor.
+     *
+     * @param name      the name of this stage, used for logging and thread names
+     * @param laneCount the number of lanes
+     * @param queueSize the capacity of the queue of each lane
+     * @param handler   the handler that processes each item
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public KeyedExecutor(String name, int laneCount, int queueSize, IStageHandler<T> handler) {
+        if (laneCount < 1) {
+            throw new IllegalArgumentException("Stage " + name + " needs at least one lane");
+        }
+        this.name = name;
+        this.lanes = new PipelineStage[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new PipelineStage<>(name + "-" + i, 1, queueSize, handler);
+        }
+    }
+
+    /**
+     * Starts all lanes.
+     */
+    public void start() {
+        for (PipelineStage<T> lane : lanes) {
+            lane.start();
+        }
+    }
+
+    /**
+     * Stops all lanes, after they have processed what is still queued.
+     */
+    public void stop() {
+        for (PipelineStage<T> lane : lanes) {
+            lane.stop();
+        }
+    }
+
+    /**
+     * Submits an item for processing in the lane of its key, blocks while the
+     * queue of that lane is full.
+     *
+     * @param key  the key, e.g. the device id
+     * @param item the item
+     * @throws InterruptedException if interrupted while waiting for room in the
+     *                              queue
+     */
+    public void submit(String key, T item) throws InterruptedException {
+        lanes[laneOf(key)].submit(item);
+    }
+
+    /**
+     * Determines the lane for a key.
+     *
+     * @param key the key
+     * @return the lane index
+     */
+    int laneOf(String key) {
+        int h = key.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), lanes.length);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * @return the number of items waiting in the queue of each lane
+     */
+    public int[] getLaneBacklog() {
+        int[] backlog = new int[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            backlog[i] = lanes[i].getQueueDepth();
+        }
+        return backlog;
+    }
+
+    /**
+     * @return the number of items processed so far, over all lanes
+     */
+    public long getProcessedCount() {
+        return Arrays.stream(lanes).mapToLong(PipelineStage::getProcessedCount).sum();
+    }
+
+    /**
+     * @return the number of times a submitter had to wait for room in a lane
+     */
+    public long getBlockedCount() {
+        return Arrays.stream(lanes).mapToLong(PipelineStage::getBlockedCount).sum();
+    }
+
+    /**
+     * @return the total time submitters spent waiting for room in a lane
+     */
+    public Duration getBlockedTime() {
+        return Arrays.stream(lanes).map(PipelineStage::getBlockedTime).reduce(Duration.ZERO, Duration::plus);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s{backlog=%s,processed=%d,blocked=%d,blockedTime=%dms}", name,
+                Arrays.toString(getLaneBacklog()), getProcessedCount(), getBlockedCount(),
+                getBlockedTime().toMillis());
+    }
+
+}
@@ -0,0 +1,213 @@
+package nl.sikken.bertrik.hab.pipeline;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One stage of a processing pipeline.
+ *
+ * Items are submitted into a bounded queue and processed by a fixed number of
+ * worker threads. When the queue is full, the submitter blocks until there is
+ * room again (backpressure), the time spent blocked is accounted for.
+ *
+ * @param <T> the type of item processed by this stage
+ */
+public final class PipelineStage<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PipelineStage.class);
+    private static final long POLL_INTERVAL_MS = 100;
+    private static final long STOP_TIMEOUT_MS = 3000;
+
+    private final String name;
+    private final int workers;
+    private final BlockingQueue<T> queue;
+    private final IStageHandler<T> handler;
+    private final ExecutorService executor;
+
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong blockedCount = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+
+    private volatile boolean running;
+
+    /**
+     * Constructor.
+     *
+     * @param name      the name of this stage, used for logging and thread names
+     * @param workers   the number of worker threads
+     * @param queueSize the capacity of the input queue
+     * @param handler   the handler that processes each item
+     */
+    public PipelineStage(String name, int workers, int queueSize, IStageHandler<T> handler) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Stage " + name + " needs at least one worker");
+        }
+        this.name = name;
+        this.workers = workers;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.handler = handler;
+        this.executor = Executors.newFixedThreadPool(workers, new NamedThreadFactory(name));
+    }
+
+    /**
+     * Starts the worker threads.
+     */
+    public void start() {
+        LOG.info("Starting stage '{}' with {} worker(s)", name, workers);
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::work);
+        }
+    }
+
+    /**
+     * Stops the worker threads, after they have processed what is still queued.
+     */
+    public void stop() {
+        LOG.info("Stopping stage '{}'", name);
+        running = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            LOG.warn("Stage '{}' stopped with {} unprocessed item(s)", name, queue.size());
+        }
+    }
+
+    /**
+     * Submits an item for processing, blocks while the queue is full.
+     *
+     * @param item the item
+     * @throws InterruptedException if interrupted while waiting for room in the
+     *                              queue
+     */
+    public void submit(T item) throws InterruptedException {
+        if (!running) {
+            LOG.warn("Stage '{}' is not running, dropping item", name);
+            return;
+        }
+        if (!queue.offer(item)) {
+            long start = System.nanoTime();
+            queue.put(item);
+            blockedNanos.addAndGet(System.nanoTime() - start);
+            blockedCount.incrementAndGet();
+        }
+    }
+
+    private void work() {
+        while (running || !queue.isEmpty()) {
+            T item;
+            try {
+                item = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (item == null) {
+                continue;
+            }
+            try {
+                handler.process(item);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                LOG.trace("Caught unhandled exception", e);
+                LOG.error("Caught unhandled exception in stage '{}': {}", name, e.getMessage());
+            } finally {
+                processedCount.incrementAndGet();
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of items waiting in the queue
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of items processed so far
+     */
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    /**
+     * @return the number of times a submitter had to wait for room in the queue
+     */
+    public long getBlockedCount() {
+        return blockedCount.get();
+    }
+
+    /**
+     * @return the total time submitters spent waiting for room in the queue
+     */
+    public Duration getBlockedTime() {
+        return Duration.ofNanos(blockedNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s{depth=%d,processed=%d,blocked=%d,blockedTime=%dms}", name,
+                getQueueDepth(), getProcessedCount(), getBlockedCount(), getBlockedTime().toMillis());
+    }
+
+    /**
+     * Processes one item of a stage.
+     *
+     * @param <T> the type of item
+     */
+    public interface IStageHandler<T> {
+
+        /**
+         * Processes an item, typically passing the result on to the next stage.
+         *
+         * @param item the item
+         * @throws Exception in case of a problem processing the item
+         */
+        void process(T item) throws Exception;
+
+    }
+
+    /**
+     * Thread factory that names the threads after the stage.
+     */
+    private static final class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, prefix + "-" + count.incrementAndGet());
+        }
+    }
+
+}
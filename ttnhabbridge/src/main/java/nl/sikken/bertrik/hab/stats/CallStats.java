@@ -0,0 +1,114 @@
+package nl.sikken.bertrik.hab.stats;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Latency and throughput statistics of timed calls, e.g. to one habitat REST
+ * endpoint or to one payload decoder.
+ */
+public final class CallStats {
+
+    private final String name;
+    private final long startNanos = System.nanoTime();
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong items = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Constructor.
+     *
+     * @param name the name of the called endpoint or decoder
+     */
+    public CallStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records the outcome of one call.
+     *
+     * @param nanos   the duration of the call (nanoseconds)
+     * @param success whether the call was successful
+     */
+    public void record(long nanos, boolean success) {
+        record(nanos, success, 1);
+    }
+
+    /**
+     * Records the outcome of one call that carried several items, e.g. the
+     * receivers merged into one payload telemetry document.
+     *
+     * @param nanos   the duration of the call (nanoseconds)
+     * @param success whether the call was successful
+     * @param count   the number of items carried by the call
+     */
+    public void record(long nanos, boolean success, int count) {
+        calls.incrementAndGet();
+        items.addAndGet(count);
+        if (!success) {
+            failures.incrementAndGet();
+        }
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public long getItems() {
+        return items.get();
+    }
+
+    /**
+     * @return the average number of items carried by a call
+     */
+    public double getItemsPerCall() {
+        long count = calls.get();
+        return (count > 0) ? (double) items.get() / count : 0.0;
+    }
+
+    /**
+     * @return the average duration of a call
+     */
+    public Duration getAverageLatency() {
+        long count = calls.get();
+        return (count > 0) ? Duration.ofNanos(totalNanos.get() / count) : Duration.ZERO;
+    }
+
+    /**
+     * @return the longest duration of a call
+     */
+    public Duration getMaxLatency() {
+        return Duration.ofNanos(maxNanos.get());
+    }
+
+    /**
+     * @return the average number of calls per second, since creation
+     */
+    public double getThroughput() {
+        double seconds = (System.nanoTime() - startNanos) / 1E9;
+        return (seconds > 0) ? calls.get() / seconds : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s{calls=%d,failures=%d,items/call=%.2f,avg=%dms,max=%dms,rate=%.2f/s}",
+                name, getCalls(), getFailures(), getItemsPerCall(), getAverageLatency().toMillis(),
+                getMaxLatency().toMillis(), getThroughput());
+    }
+
+}
@@ -0,0 +1,121 @@
+package nl.sikken.bertrik.hab.ttn;
+
+import java.time.Instant;
+
+/**
+ * Parses the UTC time stamps found in TTN uplink messages, like
+ * "2021-02-10T10:43:12.689616958Z".
+ *
+ * The fixed shape "yyyy-MM-ddTHH:mm:ss[.fffffffff]Z", with 0 to 9 fractional
+ * digits, is parsed directly into epoch seconds and nanoseconds. Anything else
+ * (offsets, leap seconds, lower case letters, other year formats, invalid
+ * values) is handed to {@link Instant#parse(CharSequence)}, so the result is
+ * always the same as that of Instant.parse.
+ */
+public final class TimestampParser {
+
+    private static final int SECONDS_PER_DAY = 86400;
+    // days from 0000-03-01 to 1970-01-01
+    private static final int DAYS_0000_TO_1970 = 719468;
+    private static final int DAYS_PER_ERA = 146097;
+    // length of "yyyy-MM-ddTHH:mm:ss"
+    private static final int SECONDS_END = 19;
+    private static final int MAX_FRACTION_DIGITS = 9;
+
+    private TimestampParser() {
+        // utility class
+    }
+
+    /**
+     * Parses a time stamp.
+     *
+     * @param text the time stamp
+     * @return the instant
+     * @throws java.time.format.DateTimeParseException if the time stamp cannot be
+     *                                                 parsed
+     */
+    public static Instant parse(CharSequence text) {
+        Instant instant = parseFast(text);
+        return (instant != null) ? instant : Instant.parse(text);
+    }
+
+    // returns null if the text does not have the expected shape
+    private static Instant parseFast(CharSequence text) {
+        int length = text.length();
+        if ((length < SECONDS_END + 1) || (length > SECONDS_END + 2 + MAX_FRACTION_DIGITS)
+                || (text.charAt(length - 1) != 'Z') || (text.charAt(4) != '-') || (text.charAt(7) != '-')
+                || (text.charAt(10) != 'T') || (text.charAt(13) != ':') || (text.charAt(16) != ':')) {
+            return null;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        int second = digits(text, 17, 2);
+        if ((year < 0) || (month < 1) || (month > 12) || (day < 1) || (day > lengthOfMonth(year, month))
+                || (hour < 0) || (hour > 23) || (minute < 0) || (minute > 59) || (second < 0) || (second > 59)) {
+            return null;
+        }
+
+        int nanos = 0;
+        int end = length - 1;
+        if (end > SECONDS_END) {
+            // a fraction needs a decimal point and at least one digit
+            int fractionDigits = end - SECONDS_END - 1;
+            if ((text.charAt(SECONDS_END) != '.') || (fractionDigits < 1)) {
+                return null;
+            }
+            nanos = digits(text, SECONDS_END + 1, fractionDigits);
+            if (nanos < 0) {
+                return null;
+            }
+            for (int i = fractionDigits; i < MAX_FRACTION_DIGITS; i++) {
+                nanos *= 10;
+            }
+        }
+
+        long epochDay = epochDay(year, month, day);
+        long epochSecond = epochDay * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second;
+        return Instant.ofEpochSecond(epochSecond, nanos);
+    }
+
+    // parses a fixed number of decimal digits, returns -1 if any is not a digit
+    private static int digits(CharSequence text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if ((digit < 0) || (digit > 9)) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+        case 2:
+            boolean leap = ((year % 4) == 0) && (((year % 100) != 0) || ((year % 400) == 0));
+            return leap ? 29 : 28;
+        case 4:
+        case 6:
+        case 9:
+        case 11:
+            return 30;
+        default:
+            return 31;
+        }
+    }
+
+    // days since 1970-01-01 of a proleptic gregorian date, counting years from March
+    private static long epochDay(int year, int month, int day) {
+        long y = (month <= 2) ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * ((month > 2) ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_ERA + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+}
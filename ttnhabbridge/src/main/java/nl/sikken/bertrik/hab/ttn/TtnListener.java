@@ -1,5 +1,6 @@
 package nl.sikken.bertrik.hab.ttn;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 
 import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
@@ -12,8 +13,7 @@ import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import nl.sikken.bertrik.hab.pipeline.KeyedExecutor;
 
 /**
  * Listener process for receiving data from the TTN.
@@ -26,17 +26,29 @@ public final class TtnListener {
     private final IMessageReceived callback;
     private final MqttClient mqttClient;
     private final MqttConnectOptions options;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final UplinkMessageReader reader = new UplinkMessageReader();
+    private final boolean logPayload;
+    private final UplinkFilter filter;
+    private final KeyedExecutor<MqttUplink> parseStage;
 
     /**
      * Constructor.
      * 
-     * @param callback the listener for a received message.
-     * @param url      the URL of the MQTT server
-     * @param appId    the user name
-     * @param appKey   the password
+     * @param callback     the listener for a received message.
+     * @param url          the URL of the MQTT server
+     * @param appId        the user name
+     * @param appKey       the password
+     * @param parseWorkers the number of threads converting MQTT messages, messages
+     *                     on the same topic are always converted by the same
+     *                     thread
+     * @param queueSize    the maximum number of MQTT messages waiting for
+     *                     conversion
+     * @param logPayload   whether to log the JSON of every received message
+     * @param filter       the filter for rejecting messages before they are
+     *                     parsed
      */
-    public TtnListener(IMessageReceived callback, String url, ETtnStackVersion version, String appId, String appKey) {
+    public TtnListener(IMessageReceived callback, String url, ETtnStackVersion version, String appId, String appKey,
+            int parseWorkers, int queueSize, boolean logPayload, UplinkFilter filter) {
         LOG.info("Creating client for MQTT server '{}' for app '{}'", url, appId);
         try {
             this.mqttClient = new MqttClient(url, MqttClient.generateClientId(), new MemoryPersistence());
@@ -44,8 +56,11 @@ public final class TtnListener {
             throw new IllegalArgumentException(e);
         }
         this.callback = callback;
+        this.logPayload = logPayload;
+        this.filter = filter;
+        this.parseStage = new KeyedExecutor<>("parse", parseWorkers, queueSize, this::handleMessage);
         mqttClient.setCallback(
-                new MqttCallbackHandler(mqttClient, version.getPrefix() + "+/devices/+/up", this::handleMessage));
+                new MqttCallbackHandler(mqttClient, version.getPrefix() + "+/devices/+/up", this::queueMessage));
 
         // create connect options
         options = new MqttConnectOptions();
@@ -54,12 +69,26 @@ public final class TtnListener {
         options.setAutomaticReconnect(true);
     }
 
+    // hands the message over to the parse stage, runs on the MQTT callback thread
+    private void queueMessage(String topic, byte[] payload) throws InterruptedException {
+        if (!filter.accept(topic, payload)) {
+            LOG.debug("Rejected message on topic '{}'", topic);
+            return;
+        }
+        // the topic contains the device id, so this keeps the order per device
+        parseStage.submit(topic, new MqttUplink(topic, payload));
+    }
+
     // notify our caller in a thread safe manner
-    private void handleMessage(String topic, String payload) {
+    private void handleMessage(MqttUplink uplink) {
         try {
-            TtnUplinkMessage uplinkMessage = convertMessage(topic, payload);
+            if (logPayload) {
+                LOG.info("Message received: {}", new String(uplink.payload, StandardCharsets.UTF_8));
+            }
+
+            TtnUplinkMessage uplinkMessage = reader.read(uplink.topic, uplink.payload);
             callback.messageReceived(uplinkMessage);
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             LOG.warn("Caught {}", e.getMessage());
         } catch (Throwable e) {
             // safety net
@@ -67,17 +96,6 @@ public final class TtnListener {
         }
     }
 
-    // package private for testing
-    TtnUplinkMessage convertMessage(String topic, String payload) throws JsonProcessingException {
-        if (topic.startsWith("v3/")) {
-            Ttnv3UplinkMessage v3message = objectMapper.readValue(payload, Ttnv3UplinkMessage.class);
-            return v3message.toUplinkMessage();
-        } else {
-            Ttnv2UplinkMessage v2message = objectMapper.readValue(payload, Ttnv2UplinkMessage.class);
-            return v2message.toUplinkMessage();
-        }
-    }
-
     /**
      * Starts this module.
      * 
@@ -85,6 +103,7 @@ public final class TtnListener {
      */
     public void start() throws MqttException {
         LOG.info("Starting MQTT listener");
+        parseStage.start();
 
         LOG.info("Connecting to MQTT server");
         mqttClient.connect(options);
@@ -98,6 +117,21 @@ public final class TtnListener {
             // don't care, just log
             LOG.warn("Caught exception on disconnect: {}", e.getMessage());
         }
+        parseStage.stop();
+    }
+
+    /**
+     * @return the filter applied before messages are parsed
+     */
+    public UplinkFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * @return the stage converting MQTT messages into uplink messages
+     */
+    public KeyedExecutor<?> getParseStage() {
+        return parseStage;
     }
 
     /**
@@ -127,10 +161,10 @@ public final class TtnListener {
 
             // notify our listener, in an exception safe manner
             try {
-                String message = new String(mqttMessage.getPayload(), StandardCharsets.US_ASCII);
-                LOG.info("Message received: {}",message);
-
-                listener.messageArrived(topic, message);
+                listener.messageArrived(topic, mqttMessage.getPayload());
+            } catch (InterruptedException e) {
+                LOG.warn("Interrupted while queueing message");
+                Thread.currentThread().interrupt();
             } catch (Exception e) {
                 LOG.trace("Caught exception", e);
                 LOG.error("Caught exception in MQTT listener: {}", e.getMessage());
@@ -154,7 +188,20 @@ public final class TtnListener {
     }
 
     interface IMqttMessageArrived {
-        void messageArrived(String topic, String json);
+        void messageArrived(String topic, byte[] payload) throws InterruptedException;
+    }
+
+    /**
+     * Raw MQTT message, as handed over from the MQTT callback thread.
+     */
+    private static final class MqttUplink {
+        private final String topic;
+        private final byte[] payload;
+
+        private MqttUplink(String topic, byte[] payload) {
+            this.topic = topic;
+            this.payload = payload;
+        }
     }
 
 }
@@ -1,16 +1,21 @@
 package nl.sikken.bertrik.hab.ttn;
 
+import java.nio.ByteBuffer;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import nl.sikken.bertrik.hab.habitat.Location;
 
 /**
  * Uplink message, TTN stack version independent, containing all information
  * needed to create a habhub sentence
+ *
+ * The message is immutable: it takes ownership of the payload array, fields and
+ * gateways passed to its constructor, and hands out read-only views of them, so
+ * no defensive copies are made.
  */
 public final class TtnUplinkMessage {
 
@@ -19,24 +24,42 @@ public final class TtnUplinkMessage {
     private final String deviceId;
     private final int counter;
     private final int port;
-    private final Map<String, Object> payloadFields = new HashMap<>();
+    private final Map<String, Object> payloadFields;
     private final byte[] payloadRaw;
     private final boolean isRetry;
-    private final List<GatewayInfo> gateways = new ArrayList<>();
+    private final List<GatewayInfo> gateways;
 
     public TtnUplinkMessage(Instant time, String appId, String deviceId, int counter, int port, byte[] payloadRaw,
             boolean isRetry) {
+        this(time, appId, deviceId, counter, port, payloadRaw, isRetry, Collections.emptyMap(),
+                Collections.emptyList());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param time          the time the message was received
+     * @param appId         the application id
+     * @param deviceId      the device id
+     * @param counter       the frame counter
+     * @param port          the port
+     * @param payloadRaw    the raw payload, must not be modified afterwards
+     * @param isRetry       whether this is a retry of an earlier message
+     * @param payloadFields the decoded payload fields, must not be modified
+     *                      afterwards
+     * @param gateways      the receiving gateways, must not be modified afterwards
+     */
+    public TtnUplinkMessage(Instant time, String appId, String deviceId, int counter, int port, byte[] payloadRaw,
+            boolean isRetry, Map<String, Object> payloadFields, List<GatewayInfo> gateways) {
         this.time = time;
         this.appId = appId;
         this.deviceId = deviceId;
         this.counter = counter;
         this.port = port;
-        this.payloadRaw = payloadRaw.clone();
+        this.payloadRaw = Objects.requireNonNull(payloadRaw);
         this.isRetry = isRetry;
-    }
-
-    public void addField(String name, Object value) {
-        payloadFields.put(name, value);
+        this.payloadFields = Collections.unmodifiableMap(payloadFields);
+        this.gateways = Collections.unmodifiableList(gateways);
     }
 
     public Instant getTime() {
@@ -55,12 +78,25 @@ public final class TtnUplinkMessage {
         return counter;
     }
 
-    public byte[] getPayloadRaw() {
-        return payloadRaw.clone();
+    /**
+     * @return a read-only view of the raw payload, positioned at its start
+     */
+    public ByteBuffer getPayload() {
+        return ByteBuffer.wrap(payloadRaw).asReadOnlyBuffer();
     }
 
+    /**
+     * @return the length of the raw payload
+     */
+    public int getPayloadLength() {
+        return payloadRaw.length;
+    }
+
+    /**
+     * @return a read-only view of the payload fields
+     */
     public Map<String, Object> getPayloadFields() {
-        return new HashMap<>(payloadFields);
+        return payloadFields;
     }
 
     public boolean isRetry() {
@@ -71,10 +107,9 @@ public final class TtnUplinkMessage {
         return port;
     }
 
-    public void addGateway(String id, double lat, double lon, double alt) {
-        gateways.add(new GatewayInfo(id, new Location(lat, lon, alt)));
-    }
-
+    /**
+     * @return a read-only view of the receiving gateways
+     */
     public List<GatewayInfo> getGateways() {
         return gateways;
     }
@@ -89,6 +124,18 @@ public final class TtnUplinkMessage {
             this.location = location;
         }
 
+        /**
+         * Constructor.
+         *
+         * @param id  the gateway id
+         * @param lat latitude (degrees)
+         * @param lon longitude (degrees)
+         * @param alt altitude (meter)
+         */
+        public GatewayInfo(String id, double lat, double lon, double alt) {
+            this(id, new Location(lat, lon, alt));
+        }
+
         public String getId() {
             return id;
         }
@@ -1,12 +1,14 @@
 package nl.sikken.bertrik.hab.ttn;
 
-import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import nl.sikken.bertrik.hab.ttn.TtnUplinkMessage.GatewayInfo;
+
 /**
  * Representation of a message received from the TTN MQTT stream.
  */
@@ -72,12 +74,12 @@ public final class Ttnv2UplinkMessage {
     }
 
     public TtnUplinkMessage toUplinkMessage() {
-        TtnUplinkMessage message = new TtnUplinkMessage(Instant.parse(metaData.time), appId, devId, counter, port,
-                payloadRaw, isRetry);
+        List<GatewayInfo> gateways = new ArrayList<>();
         for (TtnMessageGateway gw : metaData.gateways) {
-            message.addGateway(gw.id, gw.latitude, gw.longitude, gw.altitude);
+            gateways.add(new GatewayInfo(gw.id, gw.latitude, gw.longitude, gw.altitude));
         }
-        return message;
+        return new TtnUplinkMessage(TimestampParser.parse(metaData.time), appId, devId, counter, port, payloadRaw,
+                isRetry, Collections.emptyMap(), gateways);
     }
 
 }
@@ -1,12 +1,14 @@
 package nl.sikken.bertrik.hab.ttn;
 
-import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import nl.sikken.bertrik.hab.ttn.TtnUplinkMessage.GatewayInfo;
+
 /**
  * Representation of the TTNv3 uplink message.<br>
  * <br>
@@ -87,17 +89,18 @@ public final class Ttnv3UplinkMessage {
     }
 
     public TtnUplinkMessage toUplinkMessage() {
-        TtnUplinkMessage uplink = new TtnUplinkMessage(Instant.parse(receivedAt),
-                endDeviceIds.applicationIds.applicationId, endDeviceIds.deviceId, uplinkMessage.fcnt,
-                uplinkMessage.fport, uplinkMessage.payload, false);
+        List<GatewayInfo> gateways = new ArrayList<>();
         for (RxMetadata metadata : uplinkMessage.rxMetadata) {
             String id = metadata.gatewayIds.gatewayId;
             if (id.isBlank()) {
                 id = metadata.gatewayIds.eui;
             }
-            uplink.addGateway(id, metadata.location.latitude, metadata.location.longitude, metadata.location.altitude);
+            gateways.add(new GatewayInfo(id, metadata.location.latitude, metadata.location.longitude,
+                    metadata.location.altitude));
         }
-        return uplink;
+        return new TtnUplinkMessage(TimestampParser.parse(receivedAt), endDeviceIds.applicationIds.applicationId,
+                endDeviceIds.deviceId, uplinkMessage.fcnt, uplinkMessage.fport, uplinkMessage.payload, false,
+                Collections.emptyMap(), gateways);
     }
 
 }
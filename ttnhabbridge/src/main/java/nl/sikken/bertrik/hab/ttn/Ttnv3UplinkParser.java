@@ -0,0 +1,254 @@
+package nl.sikken.bertrik.hab.ttn;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import nl.sikken.bertrik.hab.ttn.TtnUplinkMessage.GatewayInfo;
+
+/**
+ * Streaming parser for TTNv3 uplink messages.
+ *
+ * Gives the same result as reading a {@link Ttnv3UplinkMessage} and converting
+ * it, but reads only the fields needed for an uplink message and skips
+ * everything else (correlation ids, settings, most of the rx metadata, etc.)
+ * without building objects for it. The payload is base64 decoded and the time
+ * is parsed directly from the parser buffers, without intermediate strings.
+ */
+final class Ttnv3UplinkParser {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private Ttnv3UplinkParser() {
+        // utility class
+    }
+
+    /**
+     * Parses an uplink message.
+     *
+     * @param json the UTF-8 encoded JSON
+     * @return the uplink message
+     * @throws IOException in case of a problem parsing the JSON
+     */
+    static TtnUplinkMessage parse(byte[] json) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(json)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            Uplink uplink = new Uplink();
+            String name;
+            while ((name = parser.nextFieldName()) != null) {
+                JsonToken token = parser.nextToken();
+                switch (name) {
+                case "end_device_ids":
+                    parseEndDeviceIds(parser, token, uplink);
+                    break;
+                case "received_at":
+                    uplink.receivedAt = parseTime(parser, token);
+                    break;
+                case "uplink_message":
+                    parseUplinkMessage(parser, token, uplink);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+                }
+            }
+            return uplink.toUplinkMessage(parser);
+        }
+    }
+
+    private static void parseEndDeviceIds(JsonParser parser, JsonToken token, Uplink uplink) throws IOException {
+        if (!startObject(parser, token)) {
+            return;
+        }
+        String name;
+        while ((name = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            switch (name) {
+            case "device_id":
+                uplink.deviceId = parser.getValueAsString();
+                break;
+            case "application_ids":
+                if (startObject(parser, value)) {
+                    String field;
+                    while ((field = parser.nextFieldName()) != null) {
+                        parser.nextToken();
+                        if ("application_id".equals(field)) {
+                            uplink.applicationId = parser.getValueAsString();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+                break;
+            default:
+                parser.skipChildren();
+                break;
+            }
+        }
+    }
+
+    private static void parseUplinkMessage(JsonParser parser, JsonToken token, Uplink uplink) throws IOException {
+        if (!startObject(parser, token)) {
+            return;
+        }
+        String name;
+        while ((name = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            switch (name) {
+            case "f_port":
+                uplink.port = parser.getValueAsInt();
+                break;
+            case "f_cnt":
+                uplink.counter = parser.getValueAsInt();
+                break;
+            case "frm_payload":
+                uplink.payload = (value == JsonToken.VALUE_NULL) ? null : parser.getBinaryValue();
+                break;
+            case "rx_metadata":
+                if (value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        parseRxMetadata(parser, parser.currentToken(), uplink.gateways);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+                break;
+            default:
+                parser.skipChildren();
+                break;
+            }
+        }
+    }
+
+    private static void parseRxMetadata(JsonParser parser, JsonToken token, List<Gateway> gateways)
+            throws IOException {
+        if (!startObject(parser, token)) {
+            return;
+        }
+        Gateway gateway = new Gateway();
+        String name;
+        while ((name = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            switch (name) {
+            case "gateway_ids":
+                if (startObject(parser, value)) {
+                    String field;
+                    while ((field = parser.nextFieldName()) != null) {
+                        parser.nextToken();
+                        if ("gateway_id".equals(field)) {
+                            gateway.id = parser.getValueAsString();
+                        } else if ("eui".equals(field)) {
+                            gateway.eui = parser.getValueAsString();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+                break;
+            case "location":
+                if (startObject(parser, value)) {
+                    String field;
+                    while ((field = parser.nextFieldName()) != null) {
+                        JsonToken coordinate = parser.nextToken();
+                        if ("latitude".equals(field)) {
+                            gateway.latitude = parseDouble(parser, coordinate);
+                        } else if ("longitude".equals(field)) {
+                            gateway.longitude = parseDouble(parser, coordinate);
+                        } else if ("altitude".equals(field)) {
+                            gateway.altitude = parseDouble(parser, coordinate);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+                break;
+            default:
+                parser.skipChildren();
+                break;
+            }
+        }
+        gateways.add(gateway);
+    }
+
+    // returns true if at the start of an object, a null value is skipped like an absent one
+    private static boolean startObject(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return false;
+        }
+        expect(parser, token, JsonToken.START_OBJECT);
+        return true;
+    }
+
+    private static void expect(JsonParser parser, JsonToken token, JsonToken expected) throws JsonParseException {
+        if (token != expected) {
+            throw new JsonParseException(parser, "Expected " + expected + " but got " + token);
+        }
+    }
+
+    private static double parseDouble(JsonParser parser, JsonToken token) throws IOException {
+        return (token == JsonToken.VALUE_NULL) ? 0.0 : parser.getValueAsDouble();
+    }
+
+    private static Instant parseTime(JsonParser parser, JsonToken token) throws IOException {
+        if (token != JsonToken.VALUE_STRING) {
+            throw new JsonParseException(parser, "Expected a time stamp but got " + token);
+        }
+        CharSequence text = CharBuffer.wrap(parser.getTextCharacters(), parser.getTextOffset(),
+                parser.getTextLength());
+        try {
+            return TimestampParser.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new JsonParseException(parser, "Invalid time stamp", e);
+        }
+    }
+
+    /**
+     * The fields of an uplink, as collected while parsing.
+     */
+    private static final class Uplink {
+        private String deviceId = "";
+        private String applicationId = "";
+        private Instant receivedAt;
+        private int port;
+        private int counter;
+        private byte[] payload = new byte[0];
+        private final List<Gateway> gateways = new ArrayList<>();
+
+        TtnUplinkMessage toUplinkMessage(JsonParser parser) throws JsonParseException {
+            if (receivedAt == null) {
+                throw new JsonParseException(parser, "Missing received_at");
+            }
+            List<GatewayInfo> gatewayInfos = new ArrayList<>(gateways.size());
+            for (Gateway gateway : gateways) {
+                String id = gateway.id;
+                if (id.isBlank()) {
+                    id = gateway.eui;
+                }
+                gatewayInfos.add(new GatewayInfo(id, gateway.latitude, gateway.longitude, gateway.altitude));
+            }
+            return new TtnUplinkMessage(receivedAt, applicationId, deviceId, counter, port, payload, false,
+                    Collections.emptyMap(), gatewayInfos);
+        }
+    }
+
+    /**
+     * The fields of one gateway, as collected while parsing.
+     */
+    private static final class Gateway {
+        private String id = "";
+        private String eui = "";
+        private double latitude = Double.NaN;
+        private double longitude = Double.NaN;
+        private double altitude = Double.NaN;
+    }
+
+}
@@ -0,0 +1,189 @@
+package nl.sikken.bertrik.hab.ttn;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cheap filter on incoming MQTT messages, applied before the JSON is parsed.
+ *
+ * Messages are rejected on the device id in the MQTT topic
+ * ("[v3/]{app}/devices/{dev}/up"), using an allow list and a deny list, and on
+ * an "is_retry": true field in the top-level JSON object. Retry messages contain
+ * duplicate data with a misleading time stamp. The number of messages rejected
+ * at each point is counted.
+ */
+public final class UplinkFilter {
+
+    private static final String DEVICES = "/devices/";
+    private static final byte[] RETRY_KEY = { '"', 'i', 's', '_', 'r', 'e', 't', 'r', 'y', '"' };
+    private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+
+    private final Set<String> allowed;
+    private final Set<String> denied;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejectedTopic = new AtomicLong();
+    private final AtomicLong rejectedRetry = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param allowed the device ids to accept, empty to accept all devices
+     * @param denied  the device ids to reject
+     */
+    public UplinkFilter(Collection<String> allowed, Collection<String> denied) {
+        this.allowed = new HashSet<>(allowed);
+        this.denied = new HashSet<>(denied);
+    }
+
+    /**
+     * Creates a filter from comma separated lists of device ids.
+     *
+     * @param allowed the device ids to accept, empty to accept all devices
+     * @param denied  the device ids to reject
+     * @return the filter
+     */
+    public static UplinkFilter parse(String allowed, String denied) {
+        return new UplinkFilter(parseList(allowed), parseList(denied));
+    }
+
+    private static Set<String> parseList(String list) {
+        Set<String> ids = new HashSet<>();
+        for (String id : list.split(",")) {
+            if (!id.trim().isEmpty()) {
+                ids.add(id.trim());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Decides whether a message should be processed further.
+     *
+     * @param topic   the MQTT topic
+     * @param payload the MQTT payload
+     * @return true if the message is accepted
+     */
+    public boolean accept(String topic, byte[] payload) {
+        if (!allowed.isEmpty() || !denied.isEmpty()) {
+            String device = deviceOf(topic);
+            if ((!allowed.isEmpty() && !allowed.contains(device)) || denied.contains(device)) {
+                rejectedTopic.incrementAndGet();
+                return false;
+            }
+        }
+        if (isRetry(payload)) {
+            rejectedRetry.incrementAndGet();
+            return false;
+        }
+        accepted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Extracts the device id from an uplink topic.
+     *
+     * @param topic the topic, e.g. "v3/{app}/devices/{dev}/up"
+     * @return the device id, or an empty string if the topic has no device id
+     */
+    static String deviceOf(String topic) {
+        int start = topic.indexOf(DEVICES);
+        if (start < 0) {
+            return "";
+        }
+        start += DEVICES.length();
+        int end = topic.indexOf('/', start);
+        return (end < 0) ? topic.substring(start) : topic.substring(start, end);
+    }
+
+    /**
+     * Scans JSON for an "is_retry" key with the value true in the top-level
+     * object, without parsing it. Keys of nested objects, e.g. decoded payload
+     * fields, and the contents of strings are ignored.
+     *
+     * @param json the JSON
+     * @return true if the key with value true was found
+     */
+    static boolean isRetry(byte[] json) {
+        int depth = 0;
+        int i = 0;
+        while (i < json.length) {
+            byte b = json[i];
+            if (b == '"') {
+                if ((depth == 1) && matches(json, i, RETRY_KEY)) {
+                    int pos = skipWhitespace(json, i + RETRY_KEY.length);
+                    if ((pos < json.length) && (json[pos] == ':')) {
+                        pos = skipWhitespace(json, pos + 1);
+                        return matches(json, pos, TRUE);
+                    }
+                }
+                i = skipString(json, i + 1);
+            } else {
+                if ((b == '{') || (b == '[')) {
+                    depth++;
+                } else if ((b == '}') || (b == ']')) {
+                    depth--;
+                }
+                i++;
+            }
+        }
+        return false;
+    }
+
+    // returns the position after the closing quote of a string starting at offset
+    private static int skipString(byte[] data, int offset) {
+        int pos = offset;
+        while (pos < data.length) {
+            byte b = data[pos++];
+            if (b == '\\') {
+                pos++;
+            } else if (b == '"') {
+                break;
+            }
+        }
+        return pos;
+    }
+
+    private static boolean matches(byte[] data, int offset, byte[] expected) {
+        if (offset > data.length - expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (data[offset + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipWhitespace(byte[] data, int offset) {
+        int pos = offset;
+        while ((pos < data.length) && ((data[pos] == ' ') || (data[pos] == '\t') || (data[pos] == '\r')
+                || (data[pos] == '\n'))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getRejectedTopic() {
+        return rejectedTopic.get();
+    }
+
+    public long getRejectedRetry() {
+        return rejectedRetry.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "filter{accepted=%d,rejected topic=%d,rejected retry=%d}", getAccepted(),
+                getRejectedTopic(), getRejectedRetry());
+    }
+
+}
@@ -0,0 +1,41 @@
+package nl.sikken.bertrik.hab.ttn;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Converts the JSON of a TTN MQTT uplink message into a {@link TtnUplinkMessage}.
+ *
+ * The JSON is parsed straight from the MQTT payload bytes, so it is decoded as
+ * UTF-8 (not ASCII) and no intermediate string is created. TTNv3 messages are
+ * read with a streaming parser, see {@link Ttnv3UplinkParser}. The object
+ * reader is created once and is thread-safe, so one instance can be shared by
+ * all parse workers.
+ */
+public final class UplinkMessageReader {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ObjectReader v2Reader = MAPPER.readerFor(Ttnv2UplinkMessage.class);
+
+    /**
+     * Converts an MQTT message.
+     *
+     * @param topic   the MQTT topic, a topic starting with "v3/" indicates a TTN v3
+     *                message, otherwise it is a v2 message
+     * @param payload the MQTT payload, UTF-8 encoded JSON
+     * @return the uplink message
+     * @throws IOException in case of a problem parsing the JSON
+     */
+    public TtnUplinkMessage read(String topic, byte[] payload) throws IOException {
+        if (topic.startsWith("v3/")) {
+            return Ttnv3UplinkParser.parse(payload);
+        } else {
+            Ttnv2UplinkMessage v2message = v2Reader.readValue(payload);
+            return v2message.toUplinkMessage();
+        }
+    }
+
+}
@@ -41,10 +41,31 @@ public final class TtnHabBridgeConfigTest {
         TtnHabBridgeConfig config = new TtnHabBridgeConfig();
         Assert.assertNotNull(config.getHabitatUrl());
         Assert.assertNotNull(config.getHabitatTimeout());
+        Assert.assertTrue(config.getHabitatMaxInFlight() > 0);
+        Assert.assertFalse(config.isHabitatMergeReceivers());
+        Assert.assertNotNull(config.getHabitatCoalesceWindow());
+        Assert.assertNotNull(config.getHabitatOutboxDir());
+        Assert.assertTrue(config.getHabitatRetryAttempts() > 0);
+        Assert.assertNotNull(config.getHabitatRetryDelay());
+        Assert.assertNotNull(config.getHabitatRetryMaxDelay());
+        Assert.assertTrue(config.getHabitatBreakerFailures() > 0);
+        Assert.assertNotNull(config.getHabitatBreakerOpenTime());
+        Assert.assertTrue(config.getHabitatUuidsBatch() > 0);
+        Assert.assertTrue(config.getHabitatUuidsLowWater() >= 0);
+        Assert.assertTrue(config.isHabitatUuidsLocal());
         Assert.assertNotNull(config.getTtnMqttUrl());
         Assert.assertNotNull(config.getTtnAppId());
         Assert.assertNotNull(config.getTtnAppKey());
         Assert.assertNotNull(config.getTtnGwCacheExpiry());
+        Assert.assertNotNull(config.getTtnDevicesAllow());
+        Assert.assertNotNull(config.getTtnDevicesDeny());
+        Assert.assertFalse(config.isTtnLogPayload());
+        Assert.assertNotNull(config.getTtnPayloadEncoding());
+        Assert.assertNotNull(config.getTtnPayloadRoutes());
+        Assert.assertTrue(config.getPipelineQueueSize() > 0);
+        Assert.assertTrue(config.getPipelineParseWorkers() > 0);
+        Assert.assertTrue(config.getPipelineLanes() > 0);
+        Assert.assertTrue(config.getPipelineUploadWorkers() > 0);
     }
 
 }
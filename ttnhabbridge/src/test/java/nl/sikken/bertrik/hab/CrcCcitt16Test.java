@@ -1,7 +1,9 @@
 package nl.sikken.bertrik.hab;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -11,6 +13,18 @@ import org.junit.Test;
  */
 public final class CrcCcitt16Test {
 
+    private static final int[] REFERENCE_TABLE = new int[256];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            int value = b << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                value = ((value & 0x8000) != 0) ? (value << 1) ^ 0x1021 : value << 1;
+            }
+            REFERENCE_TABLE[b] = value & 0xFFFF;
+        }
+    }
+
     /**
      * Verifies calculation of checksum
      * 
@@ -30,4 +44,73 @@ public final class CrcCcitt16Test {
         Assert.assertEquals(0x002A, value);
     }
 
+    /**
+     * Verifies that all ways of calculating the CRC give the same result as the
+     * original byte-at-a-time implementation, for random data.
+     */
+    @Test
+    public void testRandomEquivalence() {
+        // same table as the original implementation
+        Assert.assertEquals(0x1021, REFERENCE_TABLE[1]);
+        Assert.assertEquals(0x1EF0, REFERENCE_TABLE[255]);
+
+        Random random = new Random(1234);
+        CrcCcitt16 crc = new CrcCcitt16();
+        for (int i = 0; i < 20000; i++) {
+            byte[] data = new byte[random.nextInt(300)];
+            random.nextBytes(data);
+            int offset = random.nextInt(data.length + 1);
+            int length = random.nextInt(data.length - offset + 1);
+            int initial = random.nextInt(0x10000);
+            int expected = calculateBytewise(data, offset, length, initial);
+
+            Assert.assertEquals(expected, crc.calculate(data, offset, length, initial));
+
+            ByteBuffer heap = ByteBuffer.wrap(data, offset, length);
+            Assert.assertEquals(expected, crc.calculate(heap.slice(), initial));
+            ByteBuffer direct = ByteBuffer.allocateDirect(length);
+            direct.put(data, offset, length).flip();
+            Assert.assertEquals(expected, crc.calculate(direct, initial));
+
+            // incremental, in random pieces
+            CrcCcitt16 incremental = new CrcCcitt16(initial);
+            int pos = offset;
+            while (pos < offset + length) {
+                int n = random.nextInt(offset + length - pos + 1);
+                if (n == 1) {
+                    incremental.update(data[pos]);
+                } else {
+                    incremental.update(data, pos, n);
+                }
+                pos += n;
+            }
+            Assert.assertEquals(expected, incremental.getValue());
+        }
+    }
+
+    /**
+     * Verifies the incremental API: reset and updating from a buffer.
+     */
+    @Test
+    public void testIncremental() {
+        byte[] data = "hadie,181,10:42:10,54.422829,-6.741293,27799.3,1:10".getBytes(StandardCharsets.US_ASCII);
+        CrcCcitt16 crc = new CrcCcitt16();
+        crc.update(data, 0, 10);
+        crc.reset();
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        crc.update(buffer);
+        Assert.assertEquals(0x002A, crc.getValue());
+        Assert.assertFalse(buffer.hasRemaining());
+    }
+
+    // the original implementation, with the table computed bit by bit
+    private static int calculateBytewise(byte[] data, int offset, int length, int initial) {
+        int crc = initial;
+        for (int i = offset; i < offset + length; i++) {
+            int temp = (data[i] ^ (crc >> 8)) & 0xff;
+            crc = REFERENCE_TABLE[temp] ^ (crc << 8);
+        }
+        return crc & 0xFFFF;
+    }
+
 }
@@ -2,7 +2,9 @@ package nl.sikken.bertrik.hab;
 
 import java.io.IOException;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -11,6 +13,9 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import nl.sikken.bertrik.hab.decoder.CayenneDecoder;
+import nl.sikken.bertrik.hab.decoder.IPayloadDecoder;
+import nl.sikken.bertrik.hab.stats.CallStats;
 import nl.sikken.bertrik.hab.ttn.TtnUplinkMessage;
 import nl.sikken.bertrik.hab.ttn.Ttnv2UplinkMessage;
 
@@ -133,6 +138,45 @@ public final class PayloadDecoderTest {
         Assert.assertEquals("$$test,123,22:00:58,51.3511,5.2574,30.00,4.3,3.90*A07E\n", sentence.format());
     }
 
+    /**
+     * Verifies that the values before an item of an unknown cayenne type are still decoded.
+     * 
+     * @throws DecodeException in case of a decode exception
+     */
+    @Test
+    public void testCayenneUnknownType() throws DecodeException {
+        byte[] payload = { 2, 0x67, 0x01, 0x10, 1, (byte) 200, 0x12, 0x34 };
+        TtnUplinkMessage message = new TtnUplinkMessage(Instant.parse("2020-02-05T22:00:58Z"), "test", "test", 1, 1,
+                payload, false);
+        Sentence sentence = new CayenneDecoder().decode(message);
+        Assert.assertEquals("$$test,1,22:00:58,27.2*7D34\n", sentence.format());
+    }
+
+    /**
+     * Verifies that an item of a declared cayenne type is skipped, and the items after it are still decoded.
+     * 
+     * @throws DecodeException in case of a decode exception
+     */
+    @Test
+    public void testCayenneDeclaredType() throws DecodeException {
+        byte[] payload = { 2, 0x67, 0x01, 0x10, 1, (byte) 200, 0x12, 0x34, 3, 0x02, 0x01, (byte) 0x86 };
+        TtnUplinkMessage message = new TtnUplinkMessage(Instant.parse("2020-02-05T22:00:58Z"), "test", "test", 1, 1,
+                payload, false);
+        CayenneDecoder decoder = new CayenneDecoder("200:2");
+        Assert.assertEquals("$$test,1,22:00:58,27.2,3.90*FAD7\n", decoder.decode(message).format());
+
+        // the declarations apply to every message
+        Assert.assertEquals("$$test,1,22:00:58,27.2,3.90*FAD7\n", decoder.decode(message).format());
+    }
+
+    /**
+     * Verifies that a declaration of a type known to the cayenne library is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testCayenneDeclaredKnownType() {
+        new CayenneDecoder("200:2,103:2");
+    }
+
     @Test
     public void testCayenneWithFields() throws DecodeException, JsonMappingException, JsonProcessingException {
         String json = "{\"app_id\":\"ttn-arduino-tracker-swallow\",\"dev_id\":\"ttnwiv2n\",\"hardware_serial\":\"003B0C6BF8C3B76E\",\"port\":1,\"counter\":170,\"payload_raw\":\"AYgHr8T/Yr4AIaI=\",\r\n"
@@ -148,4 +192,57 @@ public final class PayloadDecoderTest {
         Assert.assertEquals("$$ttnwiv2n,170,17:51:05,50.3748,-4.0258,86.10*6647\n", sentence.format());
     }
 
+    /**
+     * Verifies routing to a plugged-in decoder, and the statistics per decoder.
+     * 
+     * @throws DecodeException in case of a decode exception
+     */
+    @Test
+    public void testPluggedInDecoder() throws DecodeException {
+        IPayloadDecoder plugin = new IPayloadDecoder() {
+            @Override
+            public String getName() {
+                return "plugin";
+            }
+
+            @Override
+            public Sentence decode(TtnUplinkMessage message) throws DecodeException {
+                if (message.getPayloadLength() == 0) {
+                    throw new DecodeException("Empty payload");
+                }
+                Sentence sentence = new Sentence(message.getDevId(), message.getCounter(), message.getTime());
+                sentence.addField(message.getPayloadLength());
+                return sentence;
+            }
+        };
+        List<IPayloadDecoder> providers = Arrays.asList(new CayenneDecoder(), plugin);
+        PayloadDecoder decoder = new PayloadDecoder(providers, "cayenne", "dev:plugin-*=plugin");
+
+        Instant time = Instant.parse("2020-02-05T22:00:58Z");
+        TtnUplinkMessage message = new TtnUplinkMessage(time, "test", "plugin-1", 1, 1, new byte[3], false);
+        Assert.assertEquals("$$plugin-1,1,22:00:58,3*02FE\n", decoder.decode(message).format());
+        try {
+            decoder.decode(new TtnUplinkMessage(time, "test", "plugin-1", 2, 1, new byte[0], false));
+            Assert.fail("Expected a decode exception");
+        } catch (DecodeException e) {
+            // expected
+        }
+
+        List<CallStats> stats = decoder.getStats();
+        Assert.assertEquals("cayenne", stats.get(0).getName());
+        Assert.assertEquals(0, stats.get(0).getCalls());
+        Assert.assertEquals("plugin", stats.get(1).getName());
+        Assert.assertEquals(2, stats.get(1).getCalls());
+        Assert.assertEquals(1, stats.get(1).getFailures());
+    }
+
+    /**
+     * Verifies that an encoding without a decoder is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownEncoding() {
+        PayloadDecoder decoder = new PayloadDecoder("unknown", "");
+        Assert.assertNotNull(decoder);
+    }
+
 }
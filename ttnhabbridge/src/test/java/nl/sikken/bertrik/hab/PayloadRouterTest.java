@@ -0,0 +1,78 @@
+package nl.sikken.bertrik.hab;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for PayloadRouter.
+ */
+public final class PayloadRouterTest {
+
+    private static PayloadRouter<EPayloadEncoding> parse(String rules, EPayloadEncoding defaultEncoding) {
+        return PayloadRouter.parse(rules, defaultEncoding, EPayloadEncoding::parse);
+    }
+
+    /**
+     * Verifies that uplinks without a matching rule use the default encoding.
+     */
+    @Test
+    public void testDefault() {
+        PayloadRouter<EPayloadEncoding> router = parse("", EPayloadEncoding.CAYENNE);
+        Assert.assertEquals(EPayloadEncoding.CAYENNE, router.route("habhub", "mapper2", 1));
+
+        router = parse("dev:mapper2=sodaqone", EPayloadEncoding.CAYENNE);
+        Assert.assertEquals(EPayloadEncoding.CAYENNE, router.route("habhub", "mapper3", 1));
+        Assert.assertEquals(EPayloadEncoding.CAYENNE, router.route(null, null, -1));
+    }
+
+    /**
+     * Verifies the precedence of device, application and port rules.
+     */
+    @Test
+    public void testPrecedence() {
+        PayloadRouter<EPayloadEncoding> router = parse(
+                "port:1=json, app:habhub=sodaqone, app:hab*=json, dev:icss-*=custom_format_icss, dev:icss-7=sodaqone",
+                EPayloadEncoding.CAYENNE);
+
+        // device exact before device prefix
+        Assert.assertEquals(EPayloadEncoding.SODAQ_ONE, router.route("other", "icss-7", 1));
+        Assert.assertEquals(EPayloadEncoding.CUSTOM_FORMAT_ICSS, router.route("habhub", "icss-8", 1));
+        // application exact before application prefix
+        Assert.assertEquals(EPayloadEncoding.SODAQ_ONE, router.route("habhub", "mapper2", 1));
+        Assert.assertEquals(EPayloadEncoding.JSON, router.route("habhub2", "mapper2", 2));
+        // port
+        Assert.assertEquals(EPayloadEncoding.JSON, router.route("other", "mapper2", 1));
+        Assert.assertEquals(EPayloadEncoding.CAYENNE, router.route("other", "mapper2", 2));
+    }
+
+    /**
+     * Verifies that the longest matching prefix wins.
+     */
+    @Test
+    public void testLongestPrefix() {
+        PayloadRouter<EPayloadEncoding> router = parse("dev:*=json,dev:icss-*=sodaqone,dev:icss-1*=custom_format_icss",
+                EPayloadEncoding.CAYENNE);
+        Assert.assertEquals(EPayloadEncoding.JSON, router.route("habhub", "mapper2", 1));
+        Assert.assertEquals(EPayloadEncoding.JSON, router.route("habhub", "icss", 1));
+        Assert.assertEquals(EPayloadEncoding.SODAQ_ONE, router.route("habhub", "icss-", 1));
+        Assert.assertEquals(EPayloadEncoding.SODAQ_ONE, router.route("habhub", "icss-2", 1));
+        Assert.assertEquals(EPayloadEncoding.CUSTOM_FORMAT_ICSS, router.route("habhub", "icss-12", 1));
+    }
+
+    /**
+     * Verifies that invalid rules are rejected.
+     */
+    @Test
+    public void testInvalid() {
+        String[] invalid = { "dev:mapper2", "dev:mapper2=unknown", "host:x=json", "port:x=json", "port:256=json" };
+        for (String rule : invalid) {
+            try {
+                parse(rule, EPayloadEncoding.CAYENNE);
+                Assert.fail("Expected rejection of " + rule);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+}
@@ -1,6 +1,9 @@
 package nl.sikken.bertrik.hab;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.Locale;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -38,4 +41,99 @@ public final class SentenceTest {
         Assert.assertTrue(s.contains("hello"));
     }
 
+    /**
+     * Verifies that numeric fields are formatted like String.format does.
+     */
+    @Test
+    public void testNumericFields() {
+        Sentence sentence = new Sentence("CALL", 1, Instant.ofEpochSecond(0));
+        sentence.addField(3.45, 2);
+        sentence.addField(6.78, 2);
+        sentence.addField(9.0, 1);
+        Assert.assertEquals("$$CALL,1,00:00:00,3.45,6.78,9.0*906C\n", sentence.format());
+
+        SentenceWriter writer = new SentenceWriter();
+        writer.begin("CALL", -5, Instant.ofEpochSecond(-1));
+        writer.field(-42).field(Long.MIN_VALUE).field(1.005, 2).field(0.125, 2).field(2.5, 0).field(-0.001, 2)
+                .field(-0.0, 1).field(1E20, 1).field(Double.NaN, 3).field(Double.NEGATIVE_INFINITY, 3);
+        Assert.assertEquals(
+                "$$CALL,-5,23:59:59,-42,-9223372036854775808,1.01,0.13,3,-0.00,-0.0,100000000000000000000.0,NaN,-Infinity",
+                writer.format().substring(0, writer.format().indexOf('*')));
+    }
+
+    /**
+     * Verifies that fixed-point fields are formatted like String.format does, for
+     * random values and numbers of decimals.
+     */
+    @Test
+    public void testFixedPointRandom() {
+        Random random = new Random(1234);
+        SentenceWriter writer = new SentenceWriter();
+        for (int i = 0; i < 100000; i++) {
+            double value;
+            switch (i % 4) {
+            case 0:
+                // typical coordinates
+                value = (random.nextDouble() - 0.5) * 360.0;
+                break;
+            case 1:
+                // values that are halfway in decimal
+                value = (random.nextInt(2000000) - 1000000) / 1000.0 + 0.0005;
+                break;
+            case 2:
+                // anything
+                value = Double.longBitsToDouble(random.nextLong());
+                break;
+            default:
+                value = random.nextInt(100000) / 100.0;
+                break;
+            }
+            int decimals = random.nextInt(8);
+            String expected = String.format(Locale.ROOT, "%." + decimals + "f", value);
+            String s = writer.begin("CALL", 1, Instant.ofEpochSecond(0)).field(value, decimals).format();
+            String actual = s.substring("$$CALL,1,00:00:00,".length(), s.indexOf('*'));
+            Assert.assertEquals("value " + value, expected, actual);
+        }
+    }
+
+    /**
+     * Verifies that the incrementally calculated CRC matches the CRC of the whole
+     * sentence, and that a writer can be reused.
+     */
+    @Test
+    public void testReuse() {
+        SentenceWriter writer = new SentenceWriter();
+        writer.begin("A-LONG-CALL-SIGN-TO-GROW-THE-BUFFER", 1, Instant.ofEpochSecond(0));
+        for (int i = 0; i < 100; i++) {
+            writer.field(i);
+        }
+        writer.begin("CALL", 1, Instant.ofEpochSecond(0)).field("3.45").field("6.78").field("9.0");
+        Assert.assertEquals("$$CALL,1,00:00:00,3.45,6.78,9.0*906C\n", writer.format());
+        Assert.assertEquals(writer.format(), new String(writer.toBytes(), StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Verifies that sentences formatted on the same thread, and so on the same
+     * writer, do not see each other's fields.
+     */
+    @Test
+    public void testTwoSentencesSameWriter() {
+        Sentence first = new Sentence("CALL", 1, Instant.ofEpochSecond(0));
+        Sentence second = new Sentence("A-LONGER-CALL", 2, Instant.ofEpochSecond(3661));
+        first.addField("3.45");
+        second.addField(-42);
+        first.addField(6.78, 2);
+        second.addField(1.005, 2);
+        first.addField(9.0, 1);
+        for (int i = 0; i < 20; i++) {
+            second.addField(i);
+        }
+
+        Assert.assertEquals("$$CALL,1,00:00:00,3.45,6.78,9.0*906C\n", first.format());
+        Assert.assertEquals(
+                "$$A-LONGER-CALL,2,01:01:01,-42,1.01,0,1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16,17,18,19*D7CE\n",
+                second.format());
+        Assert.assertEquals("$$CALL,1,00:00:00,3.45,6.78,9.0*906C\n", first.format());
+    }
+
 }
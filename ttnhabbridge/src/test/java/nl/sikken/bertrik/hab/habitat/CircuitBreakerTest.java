@@ -0,0 +1,69 @@
+package nl.sikken.bertrik.hab.habitat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for CircuitBreaker.
+ */
+public final class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * Verifies the state transitions: closed, open, half open and closed again.
+     */
+    @Test
+    public void testTransitions() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, Duration.ofSeconds(10), clock::get);
+
+        // consecutive failures open the circuit
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(breaker.allowRequest());
+            breaker.recordFailure();
+        }
+        Assert.assertEquals(ECircuitState.OPEN, breaker.getState());
+        Assert.assertFalse(breaker.allowRequest());
+        Assert.assertEquals(Duration.ofSeconds(10), breaker.getRemainingOpenTime());
+
+        // after the open time, a single probe goes through
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        Assert.assertTrue(breaker.allowRequest());
+        Assert.assertEquals(ECircuitState.HALF_OPEN, breaker.getState());
+        Assert.assertFalse(breaker.allowRequest());
+
+        // failing probe opens again
+        breaker.recordFailure();
+        Assert.assertEquals(ECircuitState.OPEN, breaker.getState());
+
+        // successful probe closes
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        Assert.assertTrue(breaker.allowRequest());
+        breaker.recordSuccess();
+        Assert.assertEquals(ECircuitState.CLOSED, breaker.getState());
+        Assert.assertTrue(breaker.allowRequest());
+
+        Assert.assertEquals(2, breaker.getEnteredCount(ECircuitState.OPEN));
+        Assert.assertEquals(2, breaker.getEnteredCount(ECircuitState.HALF_OPEN));
+        Assert.assertEquals(1, breaker.getEnteredCount(ECircuitState.CLOSED));
+        Assert.assertEquals(1, breaker.getRejectedCount(ECircuitState.OPEN));
+        Assert.assertEquals(1, breaker.getRejectedCount(ECircuitState.HALF_OPEN));
+        Assert.assertEquals(Duration.ofSeconds(20), breaker.getTimeIn(ECircuitState.OPEN));
+    }
+
+    /**
+     * Verifies that a success resets the count of consecutive failures.
+     */
+    @Test
+    public void testSuccessResets() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 2, Duration.ofSeconds(10), clock::get);
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        Assert.assertEquals(ECircuitState.CLOSED, breaker.getState());
+    }
+
+}
@@ -1,9 +1,23 @@
 package nl.sikken.bertrik.hab.habitat;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Assert;
 import org.junit.Ignore;
@@ -11,6 +25,11 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import nl.sikken.bertrik.hab.Sentence;
+import nl.sikken.bertrik.hab.habitat.outbox.HabitatOutbox;
+import nl.sikken.bertrik.hab.stats.CallStats;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
 import retrofit2.mock.Calls;
 
 /**
@@ -36,7 +55,7 @@ public final class HabitatUploaderTest {
 	public void testUploadPayload() throws IOException {
 		// create a mocked rest client
 		IHabitatRestApi restClient = Mockito.mock(IHabitatRestApi.class);
-		Mockito.when(restClient.updateListener(Mockito.anyString(), Mockito.anyString()))
+		Mockito.when(restClient.updateListener(Mockito.anyString(), Mockito.any(RequestBody.class)))
 		        .thenReturn(Calls.response("OK"));
 		Mockito.when(restClient.getUuids(Mockito.anyInt()))
 		        .thenReturn(Calls.response(new UuidsList(Arrays.asList("uuid1", "uuid2"))));
@@ -53,7 +72,7 @@ public final class HabitatUploaderTest {
 
 			uploader.schedulePayloadTelemetryUpload(sentence.format(), Arrays.asList(receiver), instant);
             Mockito.verify(restClient, Mockito.timeout(3000).times(1)).updateListener(Mockito.anyString(),
-                    Mockito.anyString());
+                    Mockito.any(RequestBody.class));
 		} finally {
 			uploader.stop();
 		}
@@ -63,13 +82,13 @@ public final class HabitatUploaderTest {
 	 * Happy flow scenario for listener upload.
 	 */
 	@Test
-	public void testUploadListener() {
+	public void testUploadListener() throws IOException {
         // create a mocked rest client
         IHabitatRestApi restClient = Mockito.mock(IHabitatRestApi.class);
         Mockito.when(restClient.getUuids(Mockito.anyInt()))
                 .thenReturn(Calls.response(new UuidsList(Arrays.asList("uuid1", "uuid2"))));
-        Mockito.when(restClient.uploadDocument(Mockito.anyString(), Mockito.anyString()))
-                .thenReturn(Calls.response(new UploadResult(true, "id", "rev")));
+        Mockito.when(restClient.uploadDocument(Mockito.anyString(), Mockito.any(RequestBody.class)))
+                .thenAnswer(invocation -> Calls.response(new UploadResult(true, "id", "rev")));
         
         HabitatUploader uploader = new HabitatUploader(restClient);
         
@@ -83,20 +102,476 @@ public final class HabitatUploaderTest {
             
             // expect two documents
             Mockito.verify(restClient, Mockito.timeout(3000).times(2)).uploadDocument(Mockito.anyString(),
-                    Mockito.anyString());
+                    Mockito.any(RequestBody.class));
         } finally {
             uploader.stop();
         }
 	}
 
+    /**
+     * Verifies that payload telemetry of many sentences is uploaded with several requests in flight.
+     */
+    @Test
+    public void testUploadPayloadConcurrent() throws IOException, InterruptedException {
+        // every request waits until 4 requests are in flight at the same time
+        CountDownLatch allInFlight = new CountDownLatch(4);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        IHabitatRestApi restClient = Mockito.mock(IHabitatRestApi.class);
+        Mockito.when(restClient.updateListener(Mockito.anyString(), Mockito.any(RequestBody.class)))
+                .thenAnswer(invocation -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    allInFlight.countDown();
+                    allInFlight.await(3, TimeUnit.SECONDS);
+                    inFlight.decrementAndGet();
+                    return Calls.response("OK");
+                });
+
+        HabitatUploader uploader = newUploader(restClient, 4, false, Duration.ZERO);
+        uploader.start();
+        try {
+            scheduleSentences(uploader, 0, 30);
+            Mockito.verify(restClient, Mockito.timeout(3000).times(30)).updateListener(Mockito.anyString(),
+                    Mockito.any(RequestBody.class));
+            CallStats stats = uploader.getEndpointStats().get(0);
+            waitFor(() -> stats.getCalls() == 30);
+            Assert.assertEquals(30, stats.getCalls());
+            Assert.assertEquals(0, stats.getFailures());
+            Assert.assertEquals(4, maxInFlight.get());
+        } finally {
+            uploader.stop();
+        }
+    }
+
+    /**
+     * Verifies that the receivers of one sentence, uploaded separately, update the
+     * payload telemetry document one after the other.
+     */
+    @Test
+    public void testUploadPayloadSameDocument() throws IOException, InterruptedException {
+        // like habitat, reject an update of a document that is being updated already
+        Set<String> updating = ConcurrentHashMap.newKeySet();
+        AtomicInteger conflicts = new AtomicInteger();
+        IHabitatRestApi restClient = Mockito.mock(IHabitatRestApi.class);
+        Mockito.when(restClient.updateListener(Mockito.anyString(), Mockito.any(RequestBody.class)))
+                .thenAnswer(invocation -> {
+                    String docId = invocation.getArgument(0);
+                    if (!updating.add(docId)) {
+                        conflicts.incrementAndGet();
+                        return Calls.response(Response.error(409, ResponseBody.create(null, "conflict")));
+                    }
+                    try {
+                        Thread.sleep(20);
+                        return Calls.response("OK");
+                    } finally {
+                        updating.remove(docId);
+                    }
+                });
+
+        HabitatUploader uploader = newUploader(restClient, 4, false, Duration.ZERO);
+        uploader.start();
+        CallStats stats = uploader.getEndpointStats().get(0);
+        try {
+            List<HabReceiver> receivers = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                receivers.add(new HabReceiver("GW" + i, LOCATION));
+            }
+            Instant instant = Instant.now();
+            uploader.schedulePayloadTelemetryUpload(formatSentence(1, instant), receivers, instant);
+            waitFor(() -> stats.getCalls() == 10);
+        } finally {
+            uploader.stop();
+        }
+        Assert.assertEquals(10, stats.getCalls());
+        Assert.assertEquals(0, stats.getFailures());
+        Assert.assertEquals(0, conflicts.get());
+    }
+
+    /**
+     * Verifies that all receivers of a sentence are merged into one payload telemetry upload.
+     */
+    @Test
+    public void testUploadPayloadMerged() throws IOException {
+        IHabitatRestApi restClient = Mockito.mock(IHabitatRestApi.class);
+        Mockito.when(restClient.updateListener(Mockito.anyString(), Mockito.any(RequestBody.class)))
+                .thenReturn(Calls.response("OK"));
+
+        HabitatUploader uploader = newUploader(restClient, 4, true, Duration.ZERO);
+        uploader.start();
+        try {
+            List<HabReceiver> receivers = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                receivers.add(new HabReceiver("GW" + i, LOCATION));
+            }
+            Instant instant = Instant.now();
+            uploader.schedulePayloadTelemetryUpload(formatSentence(1, instant), receivers, instant);
+            Mockito.verify(restClient, Mockito.timeout(3000).times(1)).updateListener(Mockito.anyString(),
+                    Mockito.any(RequestBody.class));
+        } finally {
+            uploader.stop();
+        }
+        CallStats stats = uploader.getEndpointStats().get(0);
+        Assert.assertEquals(1, stats.getCalls());
+        Assert.assertEquals(30, stats.getItems());
+    }
+
+    /**
+     * Verifies that receivers of the same sentence arriving within the window end up in one upload.
+     */
+    @Test
+    public void testCoalesceWindow() throws IOException {
+        IHabitatRestApi restClient = Mockito.mock(IHabitatRestApi.class);
+        Mockito.when(restClient.updateListener(Mockito.anyString(), Mockito.any(RequestBody.class)))
+                .thenReturn(Calls.response("OK"));
+
+        HabitatUploader uploader = newUploader(restClient, 1, true, Duration.ofMillis(300));
+        uploader.start();
+        try {
+            Instant instant = Instant.now();
+            String line = formatSentence(1, instant);
+
+            uploader.schedulePayloadTelemetryUpload(line, Arrays.asList(new HabReceiver("GW1", LOCATION)), instant);
+            uploader.schedulePayloadTelemetryUpload(line,
+                    Arrays.asList(new HabReceiver("GW1", LOCATION), new HabReceiver("GW2", LOCATION)), instant);
+
+            Mockito.verify(restClient, Mockito.timeout(3000).times(1)).updateListener(Mockito.anyString(),
+                    Mockito.any(RequestBody.class));
+            Assert.assertEquals(1, uploader.getUniqueSentences());
+            Assert.assertEquals(1, uploader.getMergedSentences());
+        } finally {
+            uploader.stop();
+        }
+        Assert.assertEquals(2, uploader.getEndpointStats().get(0).getItems());
+    }
+
+    /**
+     * Verifies that the receivers collected within the window are uploaded in one
+     * document, also when receivers are not merged otherwise.
+     */
+    @Test
+    public void testCoalesceWindowWithoutMerge() throws IOException {
+        IHabitatRestApi restClient = Mockito.mock(IHabitatRestApi.class);
+        Mockito.when(restClient.updateListener(Mockito.anyString(), Mockito.any(RequestBody.class)))
+                .thenAnswer(invocation -> Calls.response("OK"));
+
+        HabitatUploader uploader = newUploader(restClient, 4, false, Duration.ofMillis(300));
+        uploader.start();
+        try {
+            Instant instant = Instant.now();
+            String line = formatSentence(1, instant);
+
+            uploader.schedulePayloadTelemetryUpload(line,
+                    Arrays.asList(new HabReceiver("GW1", LOCATION), new HabReceiver("GW2", LOCATION)), instant);
+            uploader.schedulePayloadTelemetryUpload(line, Arrays.asList(new HabReceiver("GW3", LOCATION)), instant);
+
+            Mockito.verify(restClient, Mockito.timeout(3000).times(1)).updateListener(Mockito.anyString(),
+                    Mockito.any(RequestBody.class));
+        } finally {
+            uploader.stop();
+        }
+        CallStats stats = uploader.getEndpointStats().get(0);
+        Assert.assertEquals(1, stats.getCalls());
+        Assert.assertEquals(3, stats.getItems());
+    }
+
+    /**
+     * Verifies that scheduling an upload after stopping does not throw.
+     */
+    @Test
+    public void testScheduleAfterStop() throws IOException {
+        IHabitatRestApi restClient = Mockito.mock(IHabitatRestApi.class);
+        Mockito.when(restClient.updateListener(Mockito.anyString(), Mockito.any(RequestBody.class)))
+                .thenAnswer(invocation -> Calls.response("OK"));
+
+        HabitatUploader uploader = newUploader(restClient, 1, true, Duration.ofMillis(300));
+        uploader.start();
+        uploader.stop();
+
+        scheduleSentences(uploader, 0, 1);
+        Assert.assertEquals(1, uploader.getUniqueSentences());
+        Mockito.verify(restClient, Mockito.never()).updateListener(Mockito.anyString(),
+                Mockito.any(RequestBody.class));
+    }
+
+    /**
+     * Verifies that a failed upload is retried.
+     */
+    @Test
+    public void testRetry() throws IOException {
+        IHabitatRestApi restClient = Mockito.mock(IHabitatRestApi.class);
+        Mockito.when(restClient.updateListener(Mockito.anyString(), Mockito.any(RequestBody.class)))
+                .thenReturn(Calls.failure(new IOException("down")))
+                .thenReturn(Calls.response("OK"));
+
+        RetryPolicy retryPolicy = new RetryPolicy(3, Duration.ofMillis(10), Duration.ofMillis(100));
+        HabitatUploader uploader = new HabitatUploader(restClient, 1, true, Duration.ZERO, null, retryPolicy,
+                CircuitBreaker.neverOpen("test"), UuidPool.onDemand(restClient));
+        uploader.start();
+        try {
+            scheduleSentences(uploader, 0, 1);
+            Mockito.verify(restClient, Mockito.timeout(3000).times(2)).updateListener(Mockito.anyString(),
+                    Mockito.any(RequestBody.class));
+            Assert.assertEquals(1, uploader.getRetryCount());
+        } finally {
+            uploader.stop();
+        }
+    }
+
+    /**
+     * Verifies that an upload habitat answered with 408 Request Timeout is retried.
+     */
+    @Test
+    public void testRetryRequestTimeout() throws IOException, InterruptedException {
+        verifyRetryAfterError(408);
+    }
+
+    /**
+     * Verifies that an upload habitat answered with 409 Conflict is retried.
+     */
+    @Test
+    public void testRetryConflict() throws IOException, InterruptedException {
+        verifyRetryAfterError(409);
+    }
+
+    /**
+     * Verifies that an upload habitat answered with 429 Too Many Requests is retried.
+     */
+    @Test
+    public void testRetryTooManyRequests() throws IOException, InterruptedException {
+        verifyRetryAfterError(429);
+    }
+
+    /**
+     * Verifies that an upload habitat rejected with 400 Bad Request is not retried.
+     */
+    @Test
+    public void testNoRetryBadRequest() throws IOException, InterruptedException {
+        IHabitatRestApi restClient = Mockito.mock(IHabitatRestApi.class);
+        Mockito.when(restClient.updateListener(Mockito.anyString(), Mockito.any(RequestBody.class)))
+                .thenAnswer(invocation -> Calls.response(Response.error(400, ResponseBody.create(null, "bad"))));
+
+        RetryPolicy retryPolicy = new RetryPolicy(3, Duration.ofMillis(10), Duration.ofMillis(100));
+        HabitatUploader uploader = new HabitatUploader(restClient, 1, true, Duration.ZERO, null, retryPolicy,
+                CircuitBreaker.neverOpen("test"), UuidPool.onDemand(restClient));
+        uploader.start();
+        CallStats stats = uploader.getEndpointStats().get(0);
+        try {
+            scheduleSentences(uploader, 0, 1);
+            waitFor(() -> stats.getCalls() == 1);
+            Thread.sleep(100);
+        } finally {
+            uploader.stop();
+        }
+        Assert.assertEquals(1, stats.getCalls());
+        Assert.assertEquals(0, uploader.getRetryCount());
+        Assert.assertEquals(0, uploader.getGiveUpCount());
+    }
+
+    /**
+     * Verifies that an upload is retried after habitat answered with the given
+     * error, and is removed from the outbox once it succeeds.
+     */
+    private static void verifyRetryAfterError(int code) throws IOException, InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        IHabitatRestApi restClient = Mockito.mock(IHabitatRestApi.class);
+        Mockito.when(restClient.updateListener(Mockito.anyString(), Mockito.any(RequestBody.class)))
+                .thenAnswer(invocation -> (calls.incrementAndGet() == 1)
+                        ? Calls.response(Response.error(code, ResponseBody.create(null, "error")))
+                        : Calls.response("OK"));
+
+        RetryPolicy retryPolicy = new RetryPolicy(3, Duration.ofMillis(10), Duration.ofMillis(100));
+        Path dir = Files.createTempDirectory("outbox");
+        try {
+            HabitatOutbox outbox = new HabitatOutbox(dir, 1024);
+            HabitatUploader uploader = new HabitatUploader(restClient, 1, true, Duration.ZERO, outbox,
+                    retryPolicy, CircuitBreaker.neverOpen("test"), UuidPool.onDemand(restClient));
+            uploader.start();
+            CallStats stats = uploader.getEndpointStats().get(0);
+            try {
+                scheduleSentences(uploader, 0, 1);
+                waitFor(() -> (stats.getCalls() == 2) && (outbox.getAckCount() == 1));
+                outbox.flush();
+                Assert.assertEquals(2, stats.getCalls());
+                Assert.assertEquals(1, stats.getFailures());
+                Assert.assertEquals(1, uploader.getRetryCount());
+                Assert.assertEquals(0, outbox.getPending());
+            } finally {
+                uploader.stop();
+            }
+        } finally {
+            deleteDir(dir);
+        }
+    }
+
+    /**
+     * Creates an uploader without outbox, retries or circuit breaker.
+     */
+    private static HabitatUploader newUploader(IHabitatRestApi restClient, int maxInFlight, boolean mergeReceivers,
+            Duration coalesceWindow) {
+        return new HabitatUploader(restClient, maxInFlight, mergeReceivers, coalesceWindow, null,
+                RetryPolicy.NO_RETRY, CircuitBreaker.neverOpen("test"), UuidPool.onDemand(restClient));
+    }
+
+    /**
+     * Waits until a condition holds, at most 3 seconds.
+     */
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+        while (!condition.getAsBoolean() && (System.nanoTime() < deadline)) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Verifies that a retry of listener data only uploads the document that failed.
+     */
+    @Test
+    public void testRetryListenerDocument() throws IOException, InterruptedException {
+        // the second document upload (telemetry) fails once
+        AtomicInteger uploads = new AtomicInteger();
+        IHabitatRestApi restClient = Mockito.mock(IHabitatRestApi.class);
+        Mockito.when(restClient.getUuids(Mockito.anyInt()))
+                .thenAnswer(invocation -> Calls.response(new UuidsList(Arrays.asList("uuid1", "uuid2"))));
+        Mockito.when(restClient.uploadDocument(Mockito.anyString(), Mockito.any(RequestBody.class)))
+                .thenAnswer(invocation -> (uploads.incrementAndGet() == 2) ? Calls.failure(new IOException("down"))
+                        : Calls.response(new UploadResult(true, "id", "rev")));
+
+        RetryPolicy retryPolicy = new RetryPolicy(3, Duration.ofMillis(10), Duration.ofMillis(100));
+        HabitatUploader uploader = new HabitatUploader(restClient, 1, true, Duration.ZERO, null, retryPolicy,
+                CircuitBreaker.neverOpen("test"), UuidPool.onDemand(restClient));
+        uploader.start();
+        CallStats stats = uploader.getEndpointStats().get(2);
+        try {
+            uploader.scheduleListenerDataUpload(new HabReceiver("BERTRIK", LOCATION), Instant.now());
+            waitFor(() -> (uploader.getRetryCount() == 1) && (stats.getCalls() == 3));
+            Assert.assertEquals(1, uploader.getRetryCount());
+        } finally {
+            uploader.stop();
+        }
+        Assert.assertEquals(3, stats.getCalls());
+        Assert.assertEquals(1, stats.getFailures());
+    }
+
+    /**
+     * Verifies that uploads left in the outbox while habitat is down do not keep
+     * the outbox growing after habitat is back.
+     */
+    @Test
+    public void testOutboxBoundedWhileUploadsPending() throws IOException, InterruptedException {
+        AtomicBoolean habitatUp = new AtomicBoolean();
+        IHabitatRestApi restClient = Mockito.mock(IHabitatRestApi.class);
+        Mockito.when(restClient.updateListener(Mockito.anyString(), Mockito.any(RequestBody.class)))
+                .thenAnswer(invocation -> habitatUp.get() ? Calls.response("OK")
+                        : Calls.failure(new IOException("down")));
+        // failed uploads wait long for their retry, so they stay in the outbox
+        RetryPolicy retryPolicy = new RetryPolicy(3, Duration.ofMinutes(10), Duration.ofMinutes(10));
+        Path dir = Files.createTempDirectory("outbox");
+        try {
+            // uploads fail and the uploader is stopped while habitat is down
+            HabitatUploader uploader = new HabitatUploader(restClient, 1, true, Duration.ZERO,
+                    new HabitatOutbox(dir, 4096), retryPolicy, CircuitBreaker.neverOpen("test"),
+                    UuidPool.onDemand(restClient));
+            uploader.start();
+            scheduleSentences(uploader, 0, 5);
+            CallStats stats = uploader.getEndpointStats().get(0);
+            waitFor(() -> stats.getFailures() == 5);
+            uploader.stop();
+
+            // after a restart, habitat stays down for the uploads left in the outbox
+            HabitatOutbox outbox = new HabitatOutbox(dir, 4096);
+            uploader = new HabitatUploader(restClient, 1, true, Duration.ZERO, outbox, retryPolicy,
+                    CircuitBreaker.neverOpen("test"), UuidPool.onDemand(restClient));
+            uploader.start();
+            try {
+                CallStats restartStats = uploader.getEndpointStats().get(0);
+                waitFor(() -> restartStats.getFailures() == 5);
+                int segments = outbox.getSegmentCount();
+
+                habitatUp.set(true);
+                scheduleSentences(uploader, 5, 200);
+                waitFor(() -> outbox.getAckCount() == 200);
+                outbox.flush();
+                Assert.assertEquals(200, outbox.getAckCount());
+                Assert.assertEquals(5, outbox.getPending());
+                Assert.assertTrue(outbox.getSegmentCount() <= segments + 1);
+            } finally {
+                uploader.stop();
+            }
+        } finally {
+            deleteDir(dir);
+        }
+    }
+
+    /**
+     * Verifies that uploads given up after their last attempt are removed from the outbox.
+     */
+    @Test
+    public void testGiveUpRemovesFromOutbox() throws IOException, InterruptedException {
+        IHabitatRestApi restClient = Mockito.mock(IHabitatRestApi.class);
+        Mockito.when(restClient.updateListener(Mockito.anyString(), Mockito.any(RequestBody.class)))
+                .thenAnswer(invocation -> Calls.failure(new IOException("down")));
+        RetryPolicy retryPolicy = new RetryPolicy(2, Duration.ofMillis(10), Duration.ofMillis(10));
+        Path dir = Files.createTempDirectory("outbox");
+        try {
+            HabitatOutbox outbox = new HabitatOutbox(dir, 1024);
+            HabitatUploader uploader = new HabitatUploader(restClient, 1, true, Duration.ZERO, outbox,
+                    retryPolicy, CircuitBreaker.neverOpen("test"), UuidPool.onDemand(restClient));
+            uploader.start();
+            try {
+                scheduleSentences(uploader, 0, 20);
+                waitFor(() -> uploader.getGiveUpCount() == 20);
+                outbox.flush();
+                Assert.assertEquals(20, uploader.getGiveUpCount());
+                Assert.assertEquals(0, outbox.getPending());
+                Assert.assertEquals(1, outbox.getSegmentCount());
+            } finally {
+                uploader.stop();
+            }
+            try (Stream<Path> stream = Files.list(dir)) {
+                Assert.assertEquals(1, stream.count());
+            }
+        } finally {
+            deleteDir(dir);
+        }
+    }
+
+    private static void deleteDir(Path dir) throws IOException {
+        try (Stream<Path> stream = Files.walk(dir)) {
+            for (Path path : stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Schedules the upload of a number of different sentences, each with one receiver.
+     */
+    private static void scheduleSentences(HabitatUploader uploader, int first, int count) {
+        Instant instant = Instant.now();
+        for (int i = first; i < first + count; i++) {
+            uploader.schedulePayloadTelemetryUpload(formatSentence(i, instant),
+                    Arrays.asList(new HabReceiver("BERTRIK", LOCATION)), instant);
+        }
+    }
+
+    /**
+     * Formats a test sentence.
+     */
+    private static String formatSentence(int counter, Instant instant) {
+        Sentence sentence = new Sentence("NOTAFLIGHT", counter, instant);
+        sentence.addField("52.0182307,4.695772,1000");
+        return sentence.format();
+    }
+
 	/**
      * Verifies upload of payload telemetry to the actual habitat server on the internet.
 	 * 
 	 * @throws InterruptedException in case the sleep got interrupted
+	 * @throws IOException in case of a problem starting the uploader
 	 */
 	@Test
     @Ignore("this is not a junit test")
-	public void testActualPayloadUpload() throws InterruptedException {
+	public void testActualPayloadUpload() throws InterruptedException, IOException {
 		IHabitatRestApi restClient = HabitatUploader.newRestClient("http://habitat.habhub.org", 
 				Duration.ofSeconds(3000));
 		HabitatUploader uploader = new HabitatUploader(restClient);
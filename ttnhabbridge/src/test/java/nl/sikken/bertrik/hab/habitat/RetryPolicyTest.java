@@ -0,0 +1,51 @@
+package nl.sikken.bertrik.hab.habitat;
+
+import java.time.Duration;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for RetryPolicy.
+ */
+public final class RetryPolicyTest {
+
+    /**
+     * Verifies exponential growth of the delay, up to the maximum.
+     */
+    @Test
+    public void testBackoff() {
+        RetryPolicy policy = new RetryPolicy(10, Duration.ofMillis(100), Duration.ofMillis(1000));
+        Assert.assertEquals(Duration.ofMillis(100), policy.getMaxDelay(1));
+        Assert.assertEquals(Duration.ofMillis(200), policy.getMaxDelay(2));
+        Assert.assertEquals(Duration.ofMillis(800), policy.getMaxDelay(4));
+        Assert.assertEquals(Duration.ofMillis(1000), policy.getMaxDelay(5));
+        Assert.assertEquals(Duration.ofMillis(1000), policy.getMaxDelay(Integer.MAX_VALUE));
+    }
+
+    /**
+     * Verifies that the jittered delay stays between half and the full delay.
+     */
+    @Test
+    public void testJitter() {
+        RetryPolicy policy = new RetryPolicy(10, Duration.ofMillis(100), Duration.ofMillis(1000));
+        for (int i = 0; i < 1000; i++) {
+            long delay = policy.getDelay(3).toMillis();
+            Assert.assertTrue(delay >= 200);
+            Assert.assertTrue(delay <= 400);
+        }
+    }
+
+    /**
+     * Verifies the maximum number of attempts.
+     */
+    @Test
+    public void testAttempts() {
+        RetryPolicy policy = new RetryPolicy(3, Duration.ofMillis(100), Duration.ofMillis(1000));
+        Assert.assertTrue(policy.canRetry(1));
+        Assert.assertTrue(policy.canRetry(2));
+        Assert.assertFalse(policy.canRetry(3));
+        Assert.assertFalse(RetryPolicy.NO_RETRY.canRetry(1));
+    }
+
+}
@@ -0,0 +1,66 @@
+package nl.sikken.bertrik.hab.habitat;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import retrofit2.mock.Calls;
+
+/**
+ * Unit tests for UuidPool.
+ */
+public final class UuidPoolTest {
+
+    /**
+     * Verifies the form of locally generated ids.
+     */
+    @Test
+    public void testLocalId() {
+        String id = UuidPool.generateLocalId();
+        Assert.assertTrue(id.matches("[0-9a-f]{32}"));
+        Assert.assertNotEquals(id, UuidPool.generateLocalId());
+    }
+
+    /**
+     * Verifies the local fallback when habitat provides no UUIDs.
+     *
+     * @throws IOException in case of a communication problem
+     */
+    @Test
+    public void testLocalFallback() throws IOException {
+        UuidPool pool = new UuidPool(null, 10, 0, true);
+        List<String> uuids = pool.take(2);
+        Assert.assertEquals(2, uuids.size());
+        Assert.assertEquals(2, pool.getLocalCount());
+    }
+
+    /**
+     * Verifies that the pool is filled in the background and then used without fetching.
+     *
+     * @throws Exception in case of a problem
+     */
+    @Test
+    public void testRefill() throws Exception {
+        IHabitatRestApi restClient = Mockito.mock(IHabitatRestApi.class);
+        Mockito.when(restClient.getUuids(Mockito.anyInt()))
+                .thenReturn(Calls.response(new UuidsList(Arrays.asList("a", "b", "c", "d"))));
+
+        UuidPool pool = new UuidPool(restClient, 4, 2, false);
+        pool.start();
+        try {
+            Mockito.verify(restClient, Mockito.timeout(3000).times(1)).getUuids(4);
+            while (pool.size() < 4) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(Arrays.asList("a", "b"), pool.take(2));
+            Assert.assertEquals(0, pool.getLocalCount());
+        } finally {
+            pool.stop();
+        }
+    }
+
+}
@@ -1,10 +1,16 @@
 package nl.sikken.bertrik.hab.habitat.docs;
 
 import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
 import nl.sikken.bertrik.hab.habitat.HabReceiver;
 import nl.sikken.bertrik.hab.habitat.Location;
 
@@ -26,4 +32,30 @@ public final class ListenerTelemetryDocTest {
         Assert.assertNotNull(json);
     }
 
+    /**
+     * Verifies that the streamed document is identical to the document built as a JSON tree.
+     */
+    @Test
+    public void testSameAsTree() {
+        Instant instant = Instant.ofEpochSecond(1600000000L);
+        HabReceiver receiver = new HabReceiver("BERTRIK", new Location(52.0162, 4.4753, Double.NaN));
+        ListenerTelemetryDoc doc = new ListenerTelemetryDoc(instant, receiver);
+
+        JsonNodeFactory factory = new JsonNodeFactory(false);
+        String date = DateTimeFormatter.ISO_OFFSET_DATE_TIME
+                .format(OffsetDateTime.ofInstant(instant, ZoneId.systemDefault()));
+        ObjectNode dataNode = factory.objectNode();
+        dataNode.set("callsign", factory.textNode("BERTRIK"));
+        dataNode.set("latitude", factory.numberNode(52.0162));
+        dataNode.set("longitude", factory.numberNode(4.4753));
+        dataNode.set("altitude", factory.numberNode(Double.NaN));
+        ObjectNode topNode = factory.objectNode();
+        topNode.set("type", factory.textNode("listener_telemetry"));
+        topNode.set("time_created", factory.textNode(date));
+        topNode.set("time_uploaded", factory.textNode(date));
+        topNode.set("data", dataNode);
+
+        Assert.assertEquals(topNode.toString(), doc.format());
+    }
+
 }
@@ -1,10 +1,16 @@
 package nl.sikken.bertrik.hab.habitat.docs;
 
 import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
 /**
  * Unit tests for PayloadTelemetryDoc.
  */
@@ -22,5 +28,36 @@ public final class PayloadTelemetryDocTest {
 		
 		Assert.assertNotNull(json);
 	}
-	
+
+    /**
+     * Verifies that the streamed document is identical to the document built as a JSON tree.
+     */
+    @Test
+    public void testSameAsTree() {
+        Instant instant = Instant.ofEpochSecond(1600000000L, 123456789L);
+        byte[] raw = "$$NOTAFLIGHT,1,12:00:00,52.0,4.0*ABCD\n".getBytes();
+        PayloadTelemetryDoc doc = new PayloadTelemetryDoc(instant, raw);
+        doc.addCallSign("BERTRIK");
+        doc.addCallSign("GW2");
+        doc.addCallSign("BERTRIK");
+
+        JsonNodeFactory factory = new JsonNodeFactory(false);
+        String date = DateTimeFormatter.ISO_OFFSET_DATE_TIME
+                .format(OffsetDateTime.ofInstant(instant, ZoneId.systemDefault()));
+        ObjectNode dataNode = factory.objectNode();
+        dataNode.set("_raw", factory.binaryNode(raw));
+        ObjectNode receiversNode = factory.objectNode();
+        for (String callSign : new String[] { "BERTRIK", "GW2" }) {
+            ObjectNode receiverNode = factory.objectNode();
+            receiverNode.set("time_created", factory.textNode(date));
+            receiverNode.set("time_uploaded", factory.textNode(date));
+            receiversNode.set(callSign, receiverNode);
+        }
+        ObjectNode topNode = factory.objectNode();
+        topNode.set("data", dataNode);
+        topNode.set("receivers", receiversNode);
+
+        Assert.assertEquals(topNode.toString(), doc.format());
+    }
+
 }
@@ -0,0 +1,229 @@
+package nl.sikken.bertrik.hab.habitat.outbox;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for HabitatOutbox.
+ */
+public final class HabitatOutboxTest {
+
+    private Path dir;
+
+    @Before
+    public void before() throws IOException {
+        dir = Files.createTempDirectory("outbox");
+    }
+
+    @After
+    public void after() throws IOException {
+        try (Stream<Path> stream = Files.walk(dir)) {
+            for (Path path : stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Verifies that entries not acknowledged are returned again after re-opening.
+     */
+    @Test
+    public void testReplay() throws Exception {
+        HabitatOutbox outbox = new HabitatOutbox(dir);
+        Assert.assertTrue(outbox.open().isEmpty());
+        OutboxEntry first = append(outbox, "doc1");
+        OutboxEntry second = append(outbox, "doc2");
+        OutboxEntry third = outbox.append(EOutboxType.LISTENER, "CALL", 1, documents("info", "telem")).get();
+        outbox.acknowledge(second.getSequence());
+        outbox.flush();
+        Assert.assertEquals(2, outbox.getPending());
+        outbox.close();
+
+        outbox = new HabitatOutbox(dir);
+        List<OutboxEntry> entries = outbox.open();
+        try {
+            Assert.assertEquals(2, entries.size());
+            Assert.assertEquals(first.getSequence(), entries.get(0).getSequence());
+            Assert.assertEquals(Arrays.asList("doc1"), strings(entries.get(0).getDocuments()));
+            Assert.assertEquals(EOutboxType.LISTENER, entries.get(1).getType());
+            Assert.assertEquals(third.getSequence(), entries.get(1).getSequence());
+            Assert.assertEquals("CALL", entries.get(1).getKey());
+            Assert.assertEquals(Arrays.asList("info", "telem"), strings(entries.get(1).getDocuments()));
+
+            // new entries continue the sequence
+            Assert.assertTrue(append(outbox, "doc4").getSequence() > third.getSequence());
+        } finally {
+            outbox.close();
+        }
+    }
+
+    /**
+     * Verifies that the log is split in segments, which are deleted once fully acknowledged.
+     */
+    @Test
+    public void testSegments() throws Exception {
+        HabitatOutbox outbox = new HabitatOutbox(dir, 200);
+        outbox.open();
+        try {
+            List<OutboxEntry> entries = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                entries.add(append(outbox, "{\"document\":" + i + "}"));
+            }
+            Assert.assertTrue(outbox.getSegmentCount() > 1);
+            Assert.assertEquals(outbox.getSegmentCount(), countSegments());
+
+            for (OutboxEntry entry : entries) {
+                outbox.acknowledge(entry.getSequence());
+            }
+            outbox.flush();
+            Assert.assertEquals(0, outbox.getPending());
+            Assert.assertEquals(1, outbox.getSegmentCount());
+            Assert.assertEquals(1, countSegments());
+        } finally {
+            outbox.close();
+        }
+    }
+
+    /**
+     * Verifies that a few unacknowledged entries do not keep old segments on disk.
+     */
+    @Test
+    public void testCompaction() throws Exception {
+        HabitatOutbox outbox = new HabitatOutbox(dir, 1000);
+        outbox.open();
+        OutboxEntry pinned = append(outbox, "pinned");
+        try {
+            for (int i = 0; i < 200; i++) {
+                outbox.acknowledge(append(outbox, "{\"document\":" + i + "}").getSequence());
+            }
+            outbox.flush();
+            Assert.assertEquals(1, outbox.getPending());
+            Assert.assertTrue(outbox.getCompactCount() > 0);
+            Assert.assertTrue(outbox.getSegmentCount() <= 2);
+            Assert.assertEquals(outbox.getSegmentCount(), countSegments());
+        } finally {
+            outbox.close();
+        }
+
+        // the copied entry survives a restart, and can still be acknowledged
+        outbox = new HabitatOutbox(dir, 1000);
+        List<OutboxEntry> entries = outbox.open();
+        try {
+            Assert.assertEquals(1, entries.size());
+            Assert.assertEquals(pinned.getSequence(), entries.get(0).getSequence());
+            Assert.assertEquals(Arrays.asList("pinned"), strings(entries.get(0).getDocuments()));
+            outbox.acknowledge(pinned.getSequence());
+            outbox.flush();
+            Assert.assertEquals(0, outbox.getPending());
+        } finally {
+            outbox.close();
+        }
+        outbox = new HabitatOutbox(dir, 1000);
+        Assert.assertTrue(outbox.open().isEmpty());
+        outbox.close();
+    }
+
+    /**
+     * Verifies that an acknowledgement in a newer segment than its data is kept
+     * when that newer segment is deleted.
+     */
+    @Test
+    public void testAckInNewerSegment() throws Exception {
+        HabitatOutbox outbox = new HabitatOutbox(dir, 200);
+        outbox.open();
+        String padding = String.join("", Collections.nCopies(60, "x"));
+        OutboxEntry first = append(outbox, "a" + padding);
+        OutboxEntry second = append(outbox, "b" + padding);
+        try {
+            // the first segment is kept for the second entry, the acknowledgement goes in the next one
+            outbox.acknowledge(append(outbox, "c" + padding).getSequence());
+            outbox.acknowledge(first.getSequence());
+            outbox.flush();
+            List<Path> segments = listSegments();
+            Assert.assertEquals(2, segments.size());
+            for (int i = 0; i < 4; i++) {
+                outbox.acknowledge(append(outbox, i + padding).getSequence());
+            }
+            outbox.flush();
+            Assert.assertEquals(1, outbox.getPending());
+            Assert.assertEquals(outbox.getSegmentCount(), countSegments());
+            Assert.assertTrue(Files.exists(segments.get(0)));
+            Assert.assertFalse(Files.exists(segments.get(1)));
+        } finally {
+            outbox.close();
+        }
+
+        outbox = new HabitatOutbox(dir, 200);
+        List<OutboxEntry> entries = outbox.open();
+        try {
+            Assert.assertEquals(1, entries.size());
+            Assert.assertEquals(second.getSequence(), entries.get(0).getSequence());
+        } finally {
+            outbox.close();
+        }
+    }
+
+    /**
+     * Verifies recovery from a partially written record at the end of the log.
+     */
+    @Test
+    public void testTornWrite() throws Exception {
+        HabitatOutbox outbox = new HabitatOutbox(dir);
+        outbox.open();
+        append(outbox, "doc1");
+        append(outbox, "doc2");
+        outbox.close();
+
+        Path last = listSegments().get(0);
+        Files.write(last, new byte[] { 0, 0, 1, 0, 1, 2, 3 }, StandardOpenOption.APPEND);
+
+        outbox = new HabitatOutbox(dir);
+        Assert.assertEquals(2, outbox.open().size());
+        append(outbox, "doc3");
+        outbox.close();
+
+        outbox = new HabitatOutbox(dir);
+        Assert.assertEquals(3, outbox.open().size());
+        outbox.close();
+    }
+
+    private static OutboxEntry append(HabitatOutbox outbox, String document)
+            throws InterruptedException, ExecutionException {
+        return outbox.append(EOutboxType.PAYLOAD_TELEMETRY, "docid", 1, documents(document)).get();
+    }
+
+    private static List<byte[]> documents(String... documents) {
+        return Arrays.stream(documents).map(d -> d.getBytes(StandardCharsets.UTF_8)).collect(Collectors.toList());
+    }
+
+    private static List<String> strings(List<byte[]> documents) {
+        return documents.stream().map(d -> new String(d, StandardCharsets.UTF_8)).collect(Collectors.toList());
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private int countSegments() throws IOException {
+        return listSegments().size();
+    }
+
+}
@@ -0,0 +1,76 @@
+package nl.sikken.bertrik.hab.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for KeyedExecutor.
+ */
+public final class KeyedExecutorTest {
+
+    /**
+     * Verifies that items with the same key are processed in submission order.
+     * 
+     * @throws InterruptedException in case of an interrupt
+     */
+    @Test
+    public void testOrderPerKey() throws InterruptedException {
+        Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+        KeyedExecutor<String[]> executor = new KeyedExecutor<>("test", 4, 10, item -> processed
+                .computeIfAbsent(item[0], k -> new ArrayList<>()).add(Integer.parseInt(item[1])));
+        executor.start();
+        try {
+            for (int i = 0; i < 100; i++) {
+                for (String key : new String[] { "dev1", "dev2", "dev3" }) {
+                    executor.submit(key, new String[] { key, Integer.toString(i) });
+                }
+            }
+        } finally {
+            executor.stop();
+        }
+
+        Assert.assertEquals(3, processed.size());
+        for (List<Integer> counters : processed.values()) {
+            Assert.assertEquals(100, counters.size());
+            for (int i = 0; i < counters.size(); i++) {
+                Assert.assertEquals(i, counters.get(i).intValue());
+            }
+        }
+        Assert.assertEquals(300, executor.getProcessedCount());
+    }
+
+    /**
+     * Verifies that a key always maps to the same lane and that the backlog is
+     * reported per lane.
+     * 
+     * @throws InterruptedException in case of an interrupt
+     */
+    @Test
+    public void testLaneBacklog() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        KeyedExecutor<Integer> executor = new KeyedExecutor<>("test", 3, 10, i -> latch.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(executor.laneOf("dev"), executor.laneOf("dev"));
+        executor.start();
+        try {
+            for (int i = 0; i < 5; i++) {
+                executor.submit("dev", i);
+            }
+            int[] backlog = executor.getLaneBacklog();
+            Assert.assertEquals(3, backlog.length);
+            int lane = executor.laneOf("dev");
+            Assert.assertTrue(backlog[lane] >= 4);
+            Assert.assertEquals(backlog[lane], backlog[0] + backlog[1] + backlog[2]);
+        } finally {
+            latch.countDown();
+            executor.stop();
+        }
+    }
+
+}
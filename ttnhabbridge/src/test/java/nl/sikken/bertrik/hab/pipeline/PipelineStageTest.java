@@ -0,0 +1,103 @@
+package nl.sikken.bertrik.hab.pipeline;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for PipelineStage.
+ */
+public final class PipelineStageTest {
+
+    /**
+     * Verifies that submitted items are processed and counted.
+     * 
+     * @throws InterruptedException in case of an interrupt
+     */
+    @Test
+    public void testProcess() throws InterruptedException {
+        List<Integer> processed = new CopyOnWriteArrayList<>();
+        PipelineStage<Integer> stage = new PipelineStage<>("test", 2, 10, processed::add);
+        stage.start();
+        try {
+            for (int i = 0; i < 100; i++) {
+                stage.submit(i);
+            }
+        } finally {
+            stage.stop();
+        }
+        Assert.assertEquals(100, processed.size());
+        Assert.assertEquals(100, stage.getProcessedCount());
+        Assert.assertEquals(0, stage.getQueueDepth());
+    }
+
+    /**
+     * Verifies that a submitter blocks on a full queue and that this is accounted
+     * for.
+     * 
+     * @throws InterruptedException in case of an interrupt
+     */
+    @Test
+    public void testBackpressure() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(1);
+        PipelineStage<Integer> stage = new PipelineStage<>("test", 1, 1, i -> {
+            started.countDown();
+            latch.await(1, TimeUnit.SECONDS);
+        });
+        stage.start();
+        try {
+            // first item blocks the worker, second one fills the queue
+            stage.submit(1);
+            Assert.assertTrue(started.await(1, TimeUnit.SECONDS));
+            stage.submit(2);
+            Assert.assertEquals(0, stage.getBlockedCount());
+
+            // third item has to wait until the worker is released
+            new Thread(() -> {
+                sleep(100);
+                latch.countDown();
+            }).start();
+            stage.submit(3);
+            Assert.assertEquals(1, stage.getBlockedCount());
+            Assert.assertFalse(stage.getBlockedTime().isZero());
+        } finally {
+            stage.stop();
+        }
+    }
+
+    /**
+     * Verifies that an exception in the handler does not stop the stage.
+     * 
+     * @throws InterruptedException in case of an interrupt
+     */
+    @Test
+    public void testHandlerException() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(2);
+        PipelineStage<Integer> stage = new PipelineStage<>("test", 1, 10, i -> {
+            latch.countDown();
+            throw new IllegalStateException("test");
+        });
+        stage.start();
+        try {
+            stage.submit(1);
+            stage.submit(2);
+            Assert.assertTrue(latch.await(3, TimeUnit.SECONDS));
+        } finally {
+            stage.stop();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
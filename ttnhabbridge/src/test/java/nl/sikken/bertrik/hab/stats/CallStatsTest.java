@@ -0,0 +1,47 @@
+package nl.sikken.bertrik.hab.stats;
+
+import java.time.Duration;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for CallStats.
+ */
+public final class CallStatsTest {
+
+    /**
+     * Verifies calculation of latency statistics.
+     */
+    @Test
+    public void testRecord() {
+        CallStats stats = new CallStats("test");
+        Assert.assertEquals(Duration.ZERO, stats.getAverageLatency());
+
+        stats.record(Duration.ofMillis(100).toNanos(), true);
+        stats.record(Duration.ofMillis(300).toNanos(), false);
+
+        Assert.assertEquals(2, stats.getCalls());
+        Assert.assertEquals(1, stats.getFailures());
+        Assert.assertEquals(Duration.ofMillis(200), stats.getAverageLatency());
+        Assert.assertEquals(Duration.ofMillis(300), stats.getMaxLatency());
+        Assert.assertTrue(stats.getThroughput() > 0.0);
+        Assert.assertNotNull(stats.toString());
+    }
+
+    /**
+     * Verifies counting of the items carried per call.
+     */
+    @Test
+    public void testItemsPerCall() {
+        CallStats stats = new CallStats("test");
+        Assert.assertEquals(0.0, stats.getItemsPerCall(), 0.0);
+
+        stats.record(1000, true, 3);
+        stats.record(1000, true, 1);
+
+        Assert.assertEquals(4, stats.getItems());
+        Assert.assertEquals(2.0, stats.getItemsPerCall(), 0.001);
+    }
+
+}
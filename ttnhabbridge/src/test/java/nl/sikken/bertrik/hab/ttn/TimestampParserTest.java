@@ -0,0 +1,77 @@
+package nl.sikken.bertrik.hab.ttn;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for TimestampParser.
+ */
+public final class TimestampParserTest {
+
+    /**
+     * Verifies some time stamps as found in TTN messages.
+     */
+    @Test
+    public void testTtnTimes() {
+        Assert.assertEquals(Instant.parse("2021-02-10T10:43:12.689616958Z"),
+                TimestampParser.parse("2021-02-10T10:43:12.689616958Z"));
+        Assert.assertEquals(Instant.parse("2020-08-23T11:40:30.367695Z"),
+                TimestampParser.parse("2020-08-23T11:40:30.367695Z"));
+        Assert.assertEquals(Instant.ofEpochSecond(1234567890), TimestampParser.parse("2009-02-13T23:31:30Z"));
+    }
+
+    /**
+     * Verifies the result against Instant.parse for random times, with any number
+     * of fractional digits.
+     */
+    @Test
+    public void testRandom() {
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            Instant instant = Instant.ofEpochSecond(random.nextInt(Integer.MAX_VALUE) * 4L - 2_000_000_000L,
+                    random.nextInt(1_000_000_000));
+            String nanos = String.format("%09d", instant.getNano());
+            String text = instant.toString().substring(0, 19) + "." + nanos.substring(0, i % 10) + "Z";
+            if (i % 10 == 0) {
+                text = instant.toString().substring(0, 19) + "Z";
+            }
+            Assert.assertEquals(text, Instant.parse(text), TimestampParser.parse(text));
+        }
+    }
+
+    /**
+     * Verifies that unusual time stamps give the same result as Instant.parse.
+     */
+    @Test
+    public void testFallback() {
+        String[] texts = { "2000-02-29T00:00:00Z", "2016-12-31T23:59:60Z", "2021-02-10t10:43:12z",
+                "+12021-02-10T10:43:12Z", "0000-01-01T00:00:00Z", "1969-12-31T23:59:59.999999999Z",
+                "2021-02-10T10:43:12.Z", "2021-02-10T24:00:00Z" };
+        for (String text : texts) {
+            Assert.assertEquals(text, Instant.parse(text), TimestampParser.parse(text));
+        }
+    }
+
+    /**
+     * Verifies that invalid time stamps are rejected like Instant.parse does.
+     */
+    @Test
+    public void testInvalid() {
+        String[] texts = { "", "2021-02-10", "2021-02-10T10:43:12", "1900-02-29T00:00:00Z",
+                "2021-13-10T10:43:12Z", "2021-02-10T10:43:12.1234567890Z",
+                "2021-02-1xT10:43:12Z" };
+        for (String text : texts) {
+            try {
+                TimestampParser.parse(text);
+                Assert.fail("Expected rejection of " + text);
+            } catch (DateTimeParseException e) {
+                // expected
+            }
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+package nl.sikken.bertrik.hab.ttn;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import nl.sikken.bertrik.hab.ttn.TtnUplinkMessage.GatewayInfo;
+
+/**
+ * Unit tests for TtnUplinkMessage.
+ */
+public final class TtnUplinkMessageTest {
+
+    private static TtnUplinkMessage createMessage() {
+        List<GatewayInfo> gateways = new ArrayList<>();
+        gateways.add(new GatewayInfo("eui-008000000000b8b6", 52.0182, 4.70844, 27));
+        return new TtnUplinkMessage(Instant.now(), "habhub", "mapper2", 4, 1, new byte[] { 1, 2, 3 }, false,
+                Collections.singletonMap("temp", 21.5), gateways);
+    }
+
+    /**
+     * Verifies that the payload is handed out as independent read-only views.
+     */
+    @Test
+    public void testPayloadView() {
+        TtnUplinkMessage message = createMessage();
+        Assert.assertEquals(3, message.getPayloadLength());
+
+        ByteBuffer payload = message.getPayload();
+        Assert.assertTrue(payload.isReadOnly());
+        Assert.assertEquals(1, payload.get());
+        try {
+            payload.put(0, (byte) 0);
+            Assert.fail("Expected a read-only buffer");
+        } catch (ReadOnlyBufferException e) {
+            // expected
+        }
+
+        // another view starts at the beginning again
+        ByteBuffer other = message.getPayload();
+        Assert.assertEquals(0, other.position());
+        Assert.assertEquals(3, other.remaining());
+        Assert.assertEquals(1, other.get());
+    }
+
+    /**
+     * Verifies that the payload fields and gateways cannot be modified.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testFieldsReadOnly() {
+        TtnUplinkMessage message = createMessage();
+        Map<String, Object> fields = message.getPayloadFields();
+        Assert.assertEquals(21.5, fields.get("temp"));
+        fields.put("vcc", 3.9);
+    }
+
+    /**
+     * Verifies that the gateways cannot be modified.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGatewaysReadOnly() {
+        TtnUplinkMessage message = createMessage();
+        List<GatewayInfo> gateways = message.getGateways();
+        Assert.assertEquals("eui-008000000000b8b6", gateways.get(0).getId());
+        gateways.clear();
+    }
+
+}
@@ -0,0 +1,91 @@
+package nl.sikken.bertrik.hab.ttn;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import nl.sikken.bertrik.hab.ttn.TtnUplinkMessage.GatewayInfo;
+
+/**
+ * Unit tests for Ttnv3UplinkParser.
+ */
+public final class Ttnv3UplinkParserTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Verifies that the streaming parser gives the same result as the databind
+     * path, for each message of the corpus.
+     * 
+     * @throws IOException in case of a parse exception
+     */
+    @Test
+    public void testSameAsDatabind() throws IOException {
+        int count = 0;
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("ttnv3_corpus.txt");
+                BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                byte[] json = line.getBytes(StandardCharsets.UTF_8);
+                TtnUplinkMessage expected = MAPPER.readValue(json, Ttnv3UplinkMessage.class).toUplinkMessage();
+                TtnUplinkMessage actual = Ttnv3UplinkParser.parse(json);
+                assertSame(expected, actual);
+                count++;
+            }
+        }
+        Assert.assertEquals(5, count);
+    }
+
+    private void assertSame(TtnUplinkMessage expected, TtnUplinkMessage actual) {
+        Assert.assertEquals(expected.getTime(), actual.getTime());
+        Assert.assertEquals(expected.getAppId(), actual.getAppId());
+        Assert.assertEquals(expected.getDevId(), actual.getDevId());
+        Assert.assertEquals(expected.getCounter(), actual.getCounter());
+        Assert.assertEquals(expected.getPort(), actual.getPort());
+        Assert.assertEquals(expected.getPayload(), actual.getPayload());
+        Assert.assertEquals(expected.getPayloadFields(), actual.getPayloadFields());
+        Assert.assertEquals(expected.isRetry(), actual.isRetry());
+
+        List<GatewayInfo> expectedGateways = expected.getGateways();
+        List<GatewayInfo> actualGateways = actual.getGateways();
+        Assert.assertEquals(expectedGateways.size(), actualGateways.size());
+        for (int i = 0; i < expectedGateways.size(); i++) {
+            GatewayInfo expectedGateway = expectedGateways.get(i);
+            GatewayInfo actualGateway = actualGateways.get(i);
+            Assert.assertEquals(expectedGateway.getId(), actualGateway.getId());
+            Assert.assertEquals(expectedGateway.getLocation().getLat(), actualGateway.getLocation().getLat(), 0.0);
+            Assert.assertEquals(expectedGateway.getLocation().getLon(), actualGateway.getLocation().getLon(), 0.0);
+            Assert.assertEquals(expectedGateway.getLocation().getAlt(), actualGateway.getLocation().getAlt(), 0.0);
+        }
+    }
+
+    /**
+     * Verifies that messages without a time stamp are rejected.
+     * 
+     * @throws IOException in case of a parse exception
+     */
+    @Test(expected = JsonParseException.class)
+    public void testMissingTime() throws IOException {
+        Ttnv3UplinkParser.parse("{\"end_device_ids\":{\"device_id\":\"v3demo1\"}}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Verifies that a message that is not a JSON object is rejected.
+     * 
+     * @throws IOException in case of a parse exception
+     */
+    @Test(expected = JsonParseException.class)
+    public void testNotAnObject() throws IOException {
+        Ttnv3UplinkParser.parse("[1,2,3]".getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,89 @@
+package nl.sikken.bertrik.hab.ttn;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for UplinkFilter.
+ */
+public final class UplinkFilterTest {
+
+    private static final byte[] EMPTY = "{}".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] readResource(String name) throws IOException {
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream(name)) {
+            return is.readAllBytes();
+        }
+    }
+
+    /**
+     * Verifies extraction of the device id from v2 and v3 topics.
+     */
+    @Test
+    public void testDeviceOf() {
+        Assert.assertEquals("mapper2", UplinkFilter.deviceOf("ttnmapper/devices/mapper2/up"));
+        Assert.assertEquals("v3demo1", UplinkFilter.deviceOf("v3/test2id@ttn/devices/v3demo1/up"));
+        Assert.assertEquals("v3demo1", UplinkFilter.deviceOf("v3/test2id/devices/v3demo1"));
+        Assert.assertEquals("", UplinkFilter.deviceOf("v3/test2id/up"));
+    }
+
+    /**
+     * Verifies rejection by allow and deny list.
+     */
+    @Test
+    public void testAllowDeny() {
+        UplinkFilter filter = UplinkFilter.parse("", "");
+        Assert.assertTrue(filter.accept("v3/app/devices/any/up", EMPTY));
+
+        filter = UplinkFilter.parse("icspace22, icspace23", "");
+        Assert.assertTrue(filter.accept("v3/app/devices/icspace22/up", EMPTY));
+        Assert.assertFalse(filter.accept("v3/app/devices/mapper2/up", EMPTY));
+
+        filter = UplinkFilter.parse("", "mapper2");
+        Assert.assertTrue(filter.accept("v3/app/devices/icspace22/up", EMPTY));
+        Assert.assertFalse(filter.accept("v3/app/devices/mapper2/up", EMPTY));
+        Assert.assertEquals(1, filter.getAccepted());
+        Assert.assertEquals(1, filter.getRejectedTopic());
+        Assert.assertEquals(0, filter.getRejectedRetry());
+    }
+
+    /**
+     * Verifies that retry messages are detected without parsing them.
+     * 
+     * @throws IOException in case of a problem reading the test data
+     */
+    @Test
+    public void testRetry() throws IOException {
+        UplinkFilter filter = UplinkFilter.parse("", "");
+        Assert.assertFalse(filter.accept("app/devices/icspace22/up", readResource("uplink_with_retry.json")));
+        Assert.assertTrue(filter.accept("app/devices/icspace22/up", readResource("uplink_nominal.json")));
+        Assert.assertEquals(1, filter.getAccepted());
+        Assert.assertEquals(0, filter.getRejectedTopic());
+        Assert.assertEquals(1, filter.getRejectedRetry());
+
+        Assert.assertTrue(UplinkFilter.isRetry("{\"is_retry\":true}".getBytes(StandardCharsets.US_ASCII)));
+        Assert.assertFalse(UplinkFilter.isRetry("{\"is_retry\" : false}".getBytes(StandardCharsets.US_ASCII)));
+        Assert.assertFalse(UplinkFilter.isRetry("{\"is_retry\"".getBytes(StandardCharsets.US_ASCII)));
+        Assert.assertFalse(UplinkFilter.isRetry("{\"x\":\"\\\"is_retry\\\":true\"}".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Verifies that an "is_retry" key in a nested object, like the decoded payload fields, is not taken as a
+     * retry of the uplink.
+     */
+    @Test
+    public void testNestedRetry() {
+        String json = "{\"payload_fields\":{\"is_retry\":true},\"x\":[{\"is_retry\":true}],\"is_retry\":false}";
+        UplinkFilter filter = UplinkFilter.parse("", "");
+        Assert.assertTrue(filter.accept("app/devices/icspace22/up", json.getBytes(StandardCharsets.US_ASCII)));
+        Assert.assertEquals(0, filter.getRejectedRetry());
+
+        json = "{\"payload_fields\":{\"text\":\"}\\\"\"},\"is_retry\": true}";
+        Assert.assertTrue(UplinkFilter.isRetry(json.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+}
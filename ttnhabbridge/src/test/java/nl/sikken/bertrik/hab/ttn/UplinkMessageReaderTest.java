@@ -0,0 +1,54 @@
+package nl.sikken.bertrik.hab.ttn;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for UplinkMessageReader.
+ */
+public final class UplinkMessageReaderTest {
+
+    private final UplinkMessageReader reader = new UplinkMessageReader();
+
+    private byte[] readResource(String name) throws IOException {
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream(name)) {
+            return is.readAllBytes();
+        }
+    }
+
+    /**
+     * Verifies that the topic selects the TTN stack version of the message.
+     * 
+     * @throws IOException in case of a parse exception
+     */
+    @Test
+    public void testVersions() throws IOException {
+        TtnUplinkMessage v2 = reader.read("icss_lora_tracker/devices/icspace22/up",
+                readResource("uplink_nominal.json"));
+        Assert.assertEquals("icspace22", v2.getDevId());
+        Assert.assertEquals(287, v2.getCounter());
+
+        TtnUplinkMessage v3 = reader.read("v3/test2id/devices/v3demo1/up", readResource("ttnv3_uplink.json"));
+        Assert.assertEquals("v3demo1", v3.getDevId());
+        Assert.assertEquals(84, v3.getCounter());
+    }
+
+    /**
+     * Verifies that non-ASCII characters survive the conversion.
+     * 
+     * @throws IOException in case of a parse exception
+     */
+    @Test
+    public void testNonAscii() throws IOException {
+        String json = "{\"app_id\":\"habhub\",\"dev_id\":\"mapper2\",\"port\":1,\"counter\":4,\"payload_raw\":\"AA==\","
+                + "\"metadata\":{\"time\":\"2017-08-21T07:11:18.313946438Z\",\"gateways\":[{\"gtw_id\":\"gw-münchen\","
+                + "\"latitude\":52.0182,\"longitude\":4.70844,\"altitude\":27}]}}";
+        TtnUplinkMessage uplink = reader.read("habhub/devices/mapper2/up", json.getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals("gw-münchen", uplink.getGateways().get(0).getId());
+    }
+
+}